@@ -0,0 +1,20 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.List;
+
+/**
+ * POJO target of {@link UnmarshalBenchmark}: an object wrapping an array of {@link Item}s.
+ */
+public class Catalog {
+
+    private List<Item> items;
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+}
@@ -0,0 +1,13 @@
+package systems.misnomer.spring.unmarshal;
+
+/**
+ * bean with no {@link Unmarshal} fields, for {@link ScanBenchmark}; measures the cost every
+ * unrelated bean in a context pays.
+ */
+public class Fields0 {
+
+    String name;
+
+    int count;
+
+}
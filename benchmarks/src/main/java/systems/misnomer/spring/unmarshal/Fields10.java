@@ -0,0 +1,38 @@
+package systems.misnomer.spring.unmarshal;
+
+/**
+ * bean with 10 {@link Unmarshal} fields, for {@link ScanBenchmark}.
+ */
+public class Fields10 {
+
+    @Unmarshal("classpath:/item.json")
+    Item item0;
+
+    @Unmarshal("classpath:/item.json")
+    Item item1;
+
+    @Unmarshal("classpath:/item.json")
+    Item item2;
+
+    @Unmarshal("classpath:/item.json")
+    Item item3;
+
+    @Unmarshal("classpath:/item.json")
+    Item item4;
+
+    @Unmarshal("classpath:/item.json")
+    Item item5;
+
+    @Unmarshal("classpath:/item.json")
+    Item item6;
+
+    @Unmarshal("classpath:/item.json")
+    Item item7;
+
+    @Unmarshal("classpath:/item.json")
+    Item item8;
+
+    @Unmarshal("classpath:/item.json")
+    Item item9;
+
+}
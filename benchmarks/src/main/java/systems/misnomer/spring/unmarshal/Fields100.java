@@ -0,0 +1,308 @@
+package systems.misnomer.spring.unmarshal;
+
+/**
+ * bean with 100 {@link Unmarshal} fields, for {@link ScanBenchmark}.
+ */
+public class Fields100 {
+
+    @Unmarshal("classpath:/item.json")
+    Item item0;
+
+    @Unmarshal("classpath:/item.json")
+    Item item1;
+
+    @Unmarshal("classpath:/item.json")
+    Item item2;
+
+    @Unmarshal("classpath:/item.json")
+    Item item3;
+
+    @Unmarshal("classpath:/item.json")
+    Item item4;
+
+    @Unmarshal("classpath:/item.json")
+    Item item5;
+
+    @Unmarshal("classpath:/item.json")
+    Item item6;
+
+    @Unmarshal("classpath:/item.json")
+    Item item7;
+
+    @Unmarshal("classpath:/item.json")
+    Item item8;
+
+    @Unmarshal("classpath:/item.json")
+    Item item9;
+
+    @Unmarshal("classpath:/item.json")
+    Item item10;
+
+    @Unmarshal("classpath:/item.json")
+    Item item11;
+
+    @Unmarshal("classpath:/item.json")
+    Item item12;
+
+    @Unmarshal("classpath:/item.json")
+    Item item13;
+
+    @Unmarshal("classpath:/item.json")
+    Item item14;
+
+    @Unmarshal("classpath:/item.json")
+    Item item15;
+
+    @Unmarshal("classpath:/item.json")
+    Item item16;
+
+    @Unmarshal("classpath:/item.json")
+    Item item17;
+
+    @Unmarshal("classpath:/item.json")
+    Item item18;
+
+    @Unmarshal("classpath:/item.json")
+    Item item19;
+
+    @Unmarshal("classpath:/item.json")
+    Item item20;
+
+    @Unmarshal("classpath:/item.json")
+    Item item21;
+
+    @Unmarshal("classpath:/item.json")
+    Item item22;
+
+    @Unmarshal("classpath:/item.json")
+    Item item23;
+
+    @Unmarshal("classpath:/item.json")
+    Item item24;
+
+    @Unmarshal("classpath:/item.json")
+    Item item25;
+
+    @Unmarshal("classpath:/item.json")
+    Item item26;
+
+    @Unmarshal("classpath:/item.json")
+    Item item27;
+
+    @Unmarshal("classpath:/item.json")
+    Item item28;
+
+    @Unmarshal("classpath:/item.json")
+    Item item29;
+
+    @Unmarshal("classpath:/item.json")
+    Item item30;
+
+    @Unmarshal("classpath:/item.json")
+    Item item31;
+
+    @Unmarshal("classpath:/item.json")
+    Item item32;
+
+    @Unmarshal("classpath:/item.json")
+    Item item33;
+
+    @Unmarshal("classpath:/item.json")
+    Item item34;
+
+    @Unmarshal("classpath:/item.json")
+    Item item35;
+
+    @Unmarshal("classpath:/item.json")
+    Item item36;
+
+    @Unmarshal("classpath:/item.json")
+    Item item37;
+
+    @Unmarshal("classpath:/item.json")
+    Item item38;
+
+    @Unmarshal("classpath:/item.json")
+    Item item39;
+
+    @Unmarshal("classpath:/item.json")
+    Item item40;
+
+    @Unmarshal("classpath:/item.json")
+    Item item41;
+
+    @Unmarshal("classpath:/item.json")
+    Item item42;
+
+    @Unmarshal("classpath:/item.json")
+    Item item43;
+
+    @Unmarshal("classpath:/item.json")
+    Item item44;
+
+    @Unmarshal("classpath:/item.json")
+    Item item45;
+
+    @Unmarshal("classpath:/item.json")
+    Item item46;
+
+    @Unmarshal("classpath:/item.json")
+    Item item47;
+
+    @Unmarshal("classpath:/item.json")
+    Item item48;
+
+    @Unmarshal("classpath:/item.json")
+    Item item49;
+
+    @Unmarshal("classpath:/item.json")
+    Item item50;
+
+    @Unmarshal("classpath:/item.json")
+    Item item51;
+
+    @Unmarshal("classpath:/item.json")
+    Item item52;
+
+    @Unmarshal("classpath:/item.json")
+    Item item53;
+
+    @Unmarshal("classpath:/item.json")
+    Item item54;
+
+    @Unmarshal("classpath:/item.json")
+    Item item55;
+
+    @Unmarshal("classpath:/item.json")
+    Item item56;
+
+    @Unmarshal("classpath:/item.json")
+    Item item57;
+
+    @Unmarshal("classpath:/item.json")
+    Item item58;
+
+    @Unmarshal("classpath:/item.json")
+    Item item59;
+
+    @Unmarshal("classpath:/item.json")
+    Item item60;
+
+    @Unmarshal("classpath:/item.json")
+    Item item61;
+
+    @Unmarshal("classpath:/item.json")
+    Item item62;
+
+    @Unmarshal("classpath:/item.json")
+    Item item63;
+
+    @Unmarshal("classpath:/item.json")
+    Item item64;
+
+    @Unmarshal("classpath:/item.json")
+    Item item65;
+
+    @Unmarshal("classpath:/item.json")
+    Item item66;
+
+    @Unmarshal("classpath:/item.json")
+    Item item67;
+
+    @Unmarshal("classpath:/item.json")
+    Item item68;
+
+    @Unmarshal("classpath:/item.json")
+    Item item69;
+
+    @Unmarshal("classpath:/item.json")
+    Item item70;
+
+    @Unmarshal("classpath:/item.json")
+    Item item71;
+
+    @Unmarshal("classpath:/item.json")
+    Item item72;
+
+    @Unmarshal("classpath:/item.json")
+    Item item73;
+
+    @Unmarshal("classpath:/item.json")
+    Item item74;
+
+    @Unmarshal("classpath:/item.json")
+    Item item75;
+
+    @Unmarshal("classpath:/item.json")
+    Item item76;
+
+    @Unmarshal("classpath:/item.json")
+    Item item77;
+
+    @Unmarshal("classpath:/item.json")
+    Item item78;
+
+    @Unmarshal("classpath:/item.json")
+    Item item79;
+
+    @Unmarshal("classpath:/item.json")
+    Item item80;
+
+    @Unmarshal("classpath:/item.json")
+    Item item81;
+
+    @Unmarshal("classpath:/item.json")
+    Item item82;
+
+    @Unmarshal("classpath:/item.json")
+    Item item83;
+
+    @Unmarshal("classpath:/item.json")
+    Item item84;
+
+    @Unmarshal("classpath:/item.json")
+    Item item85;
+
+    @Unmarshal("classpath:/item.json")
+    Item item86;
+
+    @Unmarshal("classpath:/item.json")
+    Item item87;
+
+    @Unmarshal("classpath:/item.json")
+    Item item88;
+
+    @Unmarshal("classpath:/item.json")
+    Item item89;
+
+    @Unmarshal("classpath:/item.json")
+    Item item90;
+
+    @Unmarshal("classpath:/item.json")
+    Item item91;
+
+    @Unmarshal("classpath:/item.json")
+    Item item92;
+
+    @Unmarshal("classpath:/item.json")
+    Item item93;
+
+    @Unmarshal("classpath:/item.json")
+    Item item94;
+
+    @Unmarshal("classpath:/item.json")
+    Item item95;
+
+    @Unmarshal("classpath:/item.json")
+    Item item96;
+
+    @Unmarshal("classpath:/item.json")
+    Item item97;
+
+    @Unmarshal("classpath:/item.json")
+    Item item98;
+
+    @Unmarshal("classpath:/item.json")
+    Item item99;
+
+}
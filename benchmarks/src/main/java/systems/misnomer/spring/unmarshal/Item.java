@@ -0,0 +1,47 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.List;
+
+/**
+ * record-like element of the benchmark documents.
+ */
+public class Item {
+
+    private long id;
+    private String name;
+    private double price;
+    private List<String> tags;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+}
@@ -0,0 +1,82 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * overhead of discovering {@link Unmarshal} fields on a bean class with 0, 10 or 100 annotated
+ * fields:
+ * <ul>
+ * <li><code>coldScan</code>: the first lookup of a class, reflecting over its fields and resolving
+ * each field's location, type and reader;</li>
+ * <li><code>cachedScan</code>: every later lookup of the same class;</li>
+ * <li><code>inject</code>: post processing a new instance, including reading each field's (small)
+ * resource.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanBenchmark {
+
+    @Param({"0", "10", "100"})
+    int fields;
+
+    private Class<?> beanClass;
+
+    private UnmarshalAnnotationPostProcessor postProcessor;
+
+    @Setup
+    public void setUp() {
+        beanClass = switch (fields) {
+            case 0 -> Fields0.class;
+            case 10 -> Fields10.class;
+            case 100 -> Fields100.class;
+            default -> throw new IllegalArgumentException("No bean class with " + fields + " fields");
+        };
+        postProcessor = new UnmarshalAnnotationPostProcessor(new StandardEnvironment(), new DefaultResourceLoader(),
+                new ObjectMapper());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        postProcessor.destroy();
+    }
+
+    @Benchmark
+    public Object coldScan() throws IOException {
+        // destroy() is the only way to clear the metadata cache, and is cheap when nothing is loaded
+        postProcessor.destroy();
+        return postProcessor.findMetadata(beanClass);
+    }
+
+    @Benchmark
+    public Object cachedScan() {
+        return postProcessor.findMetadata(beanClass);
+    }
+
+    @Benchmark
+    public Object inject() throws ReflectiveOperationException {
+        Object bean = beanClass.getDeclaredConstructor().newInstance();
+        return postProcessor.postProcessBeforeInitialization(bean, "bean");
+    }
+
+}
@@ -0,0 +1,11 @@
+package systems.misnomer.spring.unmarshal;
+
+/**
+ * bean registered many times over by {@link StartupBenchmark}.
+ */
+public class StartupBean {
+
+    @Unmarshal("classpath:/item.json")
+    Item item;
+
+}
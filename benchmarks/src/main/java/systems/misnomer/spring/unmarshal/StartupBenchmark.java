@@ -0,0 +1,51 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * time to refresh and close an application context holding <code>beans</code> singletons that each
+ * have one {@link Unmarshal} field, with prefetching off and on. The difference from a context
+ * without the auto-configuration is the starter's startup cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int beans;
+
+    @Param({"false", "true"})
+    boolean prefetch;
+
+    @Benchmark
+    public int refresh() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                    Map.of("unmarshal.prefetch.enabled", String.valueOf(prefetch))));
+            context.register(UnmarshalAnnotationAutoConfiguration.class);
+            for (int i = 0; i < beans; i++) {
+                context.registerBean("bean" + i, StartupBean.class);
+            }
+            context.refresh();
+            return context.getBeanDefinitionCount();
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * throughput of reading one resource, across document sizes, charsets and target types. Each trial
+ * generates a file of roughly <code>size</code> bytes holding an array of {@link Item}s, wrapped in
+ * an object for the POJO and Map targets:
+ * <ul>
+ * <li><code>POJO</code>: bound to {@link Catalog};</li>
+ * <li><code>MAP</code>: bound to <code>Map&lt;String, Object&gt;</code>;</li>
+ * <li><code>LIST</code>: bound to <code>List&lt;Item&gt;</code>.</li>
+ * </ul>
+ * Item names contain Latin-1 characters, so UTF-8 and ISO-8859-1 files differ in encoding as well
+ * as in the read path {@link UnmarshalResourceReader} chooses for them. The secondary
+ * <code>·gc.alloc.rate.norm</code> result of <code>-prof gc</code> is a useful companion to the
+ * time per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class UnmarshalBenchmark {
+
+    @Param({"1KB", "1MB", "256MB"})
+    String size;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    String charset;
+
+    @Param({"POJO", "MAP", "LIST"})
+    String target;
+
+    private UnmarshalAnnotationPostProcessor postProcessor;
+
+    private Path file;
+
+    private Resource resource;
+
+    private Charset resourceCharset;
+
+    private JavaType javaType;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        postProcessor = new UnmarshalAnnotationPostProcessor(new StandardEnvironment(), new DefaultResourceLoader(),
+                objectMapper);
+        resourceCharset = Charset.forName(charset);
+        boolean wrapped = !"LIST".equals(target);
+        javaType = switch (target) {
+            case "POJO" -> objectMapper.constructType(Catalog.class);
+            case "MAP" -> objectMapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class);
+            case "LIST" -> objectMapper.getTypeFactory().constructCollectionType(List.class, Item.class);
+            default -> throw new IllegalArgumentException("Unknown target " + target);
+        };
+        file = Files.createTempFile("unmarshal-benchmark-", ".json");
+        writeDocument(file, parseSize(size), resourceCharset, wrapped);
+        resource = new FileSystemResource(file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        postProcessor.destroy();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object unmarshal() {
+        return postProcessor.unmarshal(javaType, resource, resourceCharset);
+    }
+
+    private static long parseSize(String size) {
+        if (size.endsWith("KB")) {
+            return Long.parseLong(size.substring(0, size.length() - 2)) * 1024;
+        }
+        if (size.endsWith("MB")) {
+            return Long.parseLong(size.substring(0, size.length() - 2)) * 1024 * 1024;
+        }
+        return Long.parseLong(size);
+    }
+
+    /**
+     * writes items until the file reaches <code>targetBytes</code>; the first item is always
+     * written, so the smallest documents slightly exceed their target.
+     */
+    private static void writeDocument(Path file, long targetBytes, Charset charset, boolean wrapped)
+            throws IOException {
+        long written = 0;
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, charset), 64 * 1024)) {
+            String open = wrapped ? "{\"items\":[" : "[";
+            out.write(open);
+            written += open.length();
+            for (long id = 0; id == 0 || written < targetBytes; id++) {
+                String item = ((id == 0) ? "" : ",") + "{\"id\":" + id + ",\"name\":\"Crème brûlée n°" + id
+                        + "\",\"price\":" + (id % 1000) / 10.0 + ",\"tags\":[\"dessert\",\"française\"]}";
+                out.write(item);
+                // every character written is Latin-1; UTF-8 needs a second byte for the 5 non-ASCII ones
+                written += item.length() + (charset.name().equals("UTF-8") ? 5 : 0);
+            }
+            out.write(wrapped ? "]}" : "]");
+        }
+    }
+
+}
@@ -25,8 +25,13 @@ public @interface Unmarshal {
 
     /**
      * the {@link Resource} to be unmarshalled into the annotated field.
+     * <p>
+     * A location with a <code>classpath*:</code> prefix or a wildcard in its path, such as
+     * <code>classpath*:data/**&#47;*.json</code>, is a pattern: every matching resource is parsed,
+     * in parallel, and the results are combined as {@link #merge()} says. A pattern that matches
+     * nothing counts as a missing resource.
      * 
-     * @return a valid {@link Resource} reference
+     * @return a valid {@link Resource} reference or pattern
      */
     @AliasFor("value")
     String location() default "";
@@ -59,4 +64,129 @@ public @interface Unmarshal {
      */
     boolean required() default true;
 
+    /**
+     * a <a href="https://www.rfc-editor.org/rfc/rfc6901">JSON Pointer</a> selecting the part of the
+     * resource to unmarshal, such as <code>/settings/limits</code>.
+     * <p>
+     * Only the selected subtree is bound to the field's type; the rest of the document is skipped
+     * at token level by a filtering parser, without being bound or buffered. Fields of the same
+     * class that point into the same resource (with the same charset and a known format) share a
+     * single parse of it, which stops once every pointer has been found. A pointer that selects
+     * nothing fails the field.
+     *
+     * @return a JSON Pointer, or empty (the default) to unmarshal the whole resource
+     */
+    String pointer() default "";
+
+    /**
+     * the data format the resource is encoded in.
+     * <p>
+     * The default, {@link UnmarshalFormat#AUTO}, picks the format from the location's file
+     * extension (<code>.smile</code>, <code>.cbor</code>, <code>.ndjson</code>, ...) and otherwise
+     * detects it from the resource's leading bytes, among the formats whose Jackson dataformat
+     * modules are on the classpath. Binary formats ignore {@link #charset()}.
+     *
+     * @return the resource's data format
+     */
+    UnmarshalFormat format() default UnmarshalFormat.AUTO;
+
+    /**
+     * whether the deserialized value may be shared with other {@link Unmarshal} fields in the same
+     * application context.
+     * <p>
+     * When {@code true}, the resource is read and parsed once per resolved location, charset and
+     * field type, and the very same instance is assigned to every shared field with that
+     * combination. Sharing can also be enabled for all fields with the <code>unmarshal.shared</code>
+     * property.
+     * <p>
+     * <strong>Shared values must be treated as immutable.</strong> The library neither copies nor
+     * freezes them, so a mutation made through one field is visible through every other field
+     * holding the same instance. Declare shared fields with unmodifiable types (records, immutable
+     * collections, or beans without setters) where possible.
+     *
+     * @return {@code true} to reuse one instance across fields; {@code false} (the default) to give
+     *         this field its own copy
+     */
+    boolean shared() default false;
+
+    /**
+     * whether reading and parsing the resource is deferred until the value is first needed.
+     * <p>
+     * Lazy fields must be declared as {@link java.util.function.Supplier Supplier&lt;T&gt;}, where
+     * {@code T} is the type to unmarshal into. The field receives a thread-safe, memoizing supplier
+     * whose first {@code get()} loads the resource; later calls return the same value. Resource
+     * existence is still checked when the bean is created, so a missing {@link #required()}
+     * resource fails fast. Load failures surface as an {@link UnmarshalException} from
+     * {@code get()}.
+     *
+     * @return {@code true} to defer loading until first access; {@code false} (the default) to
+     *         load while the bean is created
+     */
+    boolean lazy() default false;
+
+    /**
+     * whether numeric collections are bound to primitive-backed {@link UnmarshalCompact}
+     * collections instead of collections of boxed numbers.
+     * <p>
+     * Compact fields must be declared as a <code>List</code> (or <code>Collection</code>) of
+     * {@link Integer}, {@link Long} or {@link Double}, or as a <code>Map</code> from {@link String}
+     * to one of those, optionally wrapped in a lazy <code>Supplier</code>, an {@link UnmarshalRef}
+     * or a <code>CompletableFuture</code>. The field receives an immutable {@link UnmarshalCompact.IntList},
+     * {@link UnmarshalCompact.LongList}, {@link UnmarshalCompact.DoubleList} or
+     * {@link UnmarshalCompact.NumberMap}, parsed without boxing. Declaring the field with one of
+     * those types, or as <code>int[]</code>, <code>long[]</code> or <code>double[]</code>, is
+     * compact already.
+     *
+     * @return {@code true} to bind to a compact collection; {@code false} (the default) to bind to
+     *         the collection Jackson would otherwise choose
+     */
+    boolean compact() default false;
+
+    /**
+     * binds the elements of a top-level array into a <code>Map</code> keyed by one of their
+     * properties, in a single pass without an intermediate <code>List</code>.
+     * <p>
+     * The value is either the name of a top-level property of each element (<code>"id"</code>) or
+     * a JSON pointer into it (<code>"/account/id"</code>). The property's value is bound to the
+     * map's key type and the element to the map's value type. The field must be declared as a
+     * <code>Map</code>: a <code>SortedMap</code> or <code>NavigableMap</code> is filled in key
+     * order, any other map interface in array order. Declaring the value type as a collection,
+     * such as <code>Map&lt;String, List&lt;User&gt;&gt;</code>, makes the index multi-valued.
+     * Every element must have a non-null key.
+     *
+     * @return a property name or JSON pointer to index by, or empty (the default) to bind the
+     *         resource as it is
+     * @see #duplicateKeys()
+     */
+    String indexBy() default "";
+
+    /**
+     * what happens when two elements of an {@link #indexBy() indexed} array have the same key.
+     *
+     * @return the duplicate key policy; by default, duplicates fail
+     */
+    UnmarshalDuplicateKeys duplicateKeys() default UnmarshalDuplicateKeys.FAIL;
+
+    /**
+     * how the resources matched by a {@link #location()} pattern are combined. Ignored for a
+     * location that isn't a pattern.
+     *
+     * @return the merge strategy; by default, chosen by the field's type
+     */
+    UnmarshalMerge merge() default UnmarshalMerge.AUTO;
+
+    /**
+     * shares one instance among the equal values of the resource, to shrink the heap taken by
+     * repetitive data such as country codes, statuses or small nested records.
+     * <p>
+     * Values are deduplicated as they're bound, through a table that lives for one load and holds
+     * at most {@link UnmarshalProperties.Canonicalize#getMaxEntries() unmarshal.canonicalize.max-entries}
+     * distinct values. The number of duplicates and an estimate of the bytes saved are logged at
+     * debug level after every load. Canonicalized fields aren't read through snapshots and can't be
+     * streamed or stored off-heap.
+     *
+     * @return which values to share; by default, none
+     */
+    UnmarshalCanonicalization canonicalize() default UnmarshalCanonicalization.NONE;
+
 }
@@ -1,14 +1,22 @@
 package systems.misnomer.spring.unmarshal;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.ClassUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -24,6 +32,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * fallback only if no <code>ObjectMapper</code> bean exists; this ensures we never displace a
  * customized application-wide <code>ObjectMapper</code>. A {@link ConfigurableEnvironment} and
  * {@link ResourceLoader} are also required and should already exist in the context.
+ * <p>
+ * {@link UnmarshalProperties} are bound directly from the environment rather than through a
+ * properties bean, since a <code>BeanPostProcessor</code> is created before ordinary beans. For
+ * the same reason its bean method is static, so this configuration class isn't instantiated early.
+ * Background loads run on an {@link Executor} named {@value #UNMARSHAL_ANNOTATION_TASK_EXECUTOR}
+ * if one exists; otherwise on a private {@link ThreadPoolTaskExecutor} that queues loads beyond its
+ * pool size, so submitting one never blocks bean creation, and uses virtual threads when
+ * <code>spring.threads.virtual.enabled</code> is set on Java 21+. The private executor is
+ * deliberately not a bean, so it never displaces Spring Boot's own task executor.
+ * <p>
+ * For every binary {@link UnmarshalFormat} whose Jackson dataformat module is on the classpath, a
+ * copy of the selected <code>ObjectMapper</code> using that format's factory is registered with the
+ * post processor, so binary resources are read with the same modules and features as JSON ones.
  */
 @AutoConfiguration(after = JacksonAutoConfiguration.class)
 @ConditionalOnMissingBean(UnmarshalAnnotationPostProcessor.class)
@@ -36,9 +57,17 @@ public class UnmarshalAnnotationAutoConfiguration {
      */
     public static final String UNMARSHAL_ANNOTATION_OBJECT_MAPPER = "unmarshalAnnotationObjectMapper";
 
+    /**
+     * Bean name for the {@link Executor} the post processor runs background loads on; register an
+     * {@code Executor} bean with this name to override the default.
+     */
+    public static final String UNMARSHAL_ANNOTATION_TASK_EXECUTOR = "unmarshalAnnotationTaskExecutor";
+
     /** Bean name of the {@link UnmarshalAnnotationPostProcessor} registered by this autoconfig. */
     public static final String UNMARSHAL_ANNOTATION_POST_PROCESSOR = "unmarshalAnnotationPostProcessor";
 
+    private static final String METER_BINDER_CLASS_NAME = "io.micrometer.core.instrument.binder.MeterBinder";
+
     /** Default constructor; instantiated by Spring Boot's autoconfigure machinery. */
     public UnmarshalAnnotationAutoConfiguration() {
     }
@@ -59,15 +88,75 @@ public class UnmarshalAnnotationAutoConfiguration {
      * @param resourceLoader resource loader used to load the resource at the resolved location
      * @param overrideProvider provider qualified by the override bean name
      * @param defaultProvider provider for any {@code ObjectMapper} in the context
-     * @return the post processor bean
+     * @param executorProvider provider qualified by the executor override bean name
+     * @return the post processor bean, configured with the bound {@link UnmarshalProperties}
      */
     @Bean(name = UNMARSHAL_ANNOTATION_POST_PROCESSOR)
-    public UnmarshalAnnotationPostProcessor unmarshalAnnotationPostProcessor(
+    public static UnmarshalAnnotationPostProcessor unmarshalAnnotationPostProcessor(
             ConfigurableEnvironment environment, ResourceLoader resourceLoader,
             @Qualifier(UNMARSHAL_ANNOTATION_OBJECT_MAPPER) ObjectProvider<ObjectMapper> overrideProvider,
-            ObjectProvider<ObjectMapper> defaultProvider) {
+            ObjectProvider<ObjectMapper> defaultProvider,
+            @Qualifier(UNMARSHAL_ANNOTATION_TASK_EXECUTOR) ObjectProvider<Executor> executorProvider) {
         ObjectMapper objectMapper = overrideProvider.getIfAvailable(defaultProvider::getObject);
-        return new UnmarshalAnnotationPostProcessor(environment, resourceLoader, objectMapper);
+        UnmarshalProperties properties = Binder.get(environment)
+                .bindOrCreate(UnmarshalProperties.PREFIX, UnmarshalProperties.class);
+        UnmarshalAnnotationPostProcessor postProcessor =
+                new UnmarshalAnnotationPostProcessor(environment, resourceLoader, objectMapper);
+        postProcessor.setProperties(properties);
+        postProcessor.setFormatMappers(formatMappers(objectMapper, resourceLoader.getClassLoader()));
+        postProcessor.setExecutor(executorProvider.getIfAvailable(() -> taskExecutor(environment, properties)));
+        if (ClassUtils.isPresent(METER_BINDER_CLASS_NAME, resourceLoader.getClassLoader())) {
+            postProcessor.setLoadRecorder(new UnmarshalLoadRecorder());
+        }
+        return postProcessor;
+    }
+
+    private static Map<UnmarshalFormat, ObjectMapper> formatMappers(ObjectMapper objectMapper,
+            ClassLoader classLoader) {
+        Map<UnmarshalFormat, ObjectMapper> mappers = new EnumMap<>(UnmarshalFormat.class);
+        for (UnmarshalFormat format : UnmarshalFormat.values()) {
+            if (format.isBinary() && format.isAvailable(classLoader)) {
+                mappers.put(format, objectMapper.copyWith(format.createFactory(classLoader)));
+            }
+        }
+        return mappers;
+    }
+
+    /**
+     * @return a pool of at most the configured number of threads, which queues loads beyond that
+     *         rather than blocking the thread submitting them; idle threads time out, so a closed
+     *         context leaves none behind
+     */
+    private static Executor taskExecutor(ConfigurableEnvironment environment, UnmarshalProperties properties) {
+        Integer concurrencyLimit = properties.getTask().getConcurrencyLimit();
+        int poolSize = (concurrencyLimit != null) ? concurrencyLimit : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("unmarshal-");
+        executor.setDaemon(true);
+        executor.setVirtualThreads(Threading.VIRTUAL.isActive(environment));
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * publishes metrics for the loads recorded by the auto-configured post processor, when
+     * Micrometer is on the classpath. A registry configured by Spring Boot Actuator binds every
+     * <code>MeterBinder</code> bean automatically.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = METER_BINDER_CLASS_NAME)
+    static class UnmarshalMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(UnmarshalMetrics.class)
+        static UnmarshalMetrics unmarshalMetrics(UnmarshalAnnotationPostProcessor postProcessor) {
+            UnmarshalLoadRecorder recorder = postProcessor.getLoadRecorder();
+            return new UnmarshalMetrics((recorder != null) ? recorder : new UnmarshalLoadRecorder());
+        }
+
     }
 
 }
@@ -1,25 +1,69 @@
 package systems.misnomer.spring.unmarshal;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aot.AotDetector;
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.aot.BeanRegistrationAotContribution;
+import org.springframework.beans.factory.aot.BeanRegistrationAotProcessor;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.util.function.SingletonSupplier;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /**
  * handles post-processing of Spring beans when they contain one or more fields annotated with
@@ -28,7 +72,123 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * to be unmarshalled into the field's type using
  * <a href="https://github.com/FasterXML/jackson">Jackson</a>. The charset used to decode the
  * resource bytes can be set with the annotation's <code>charset</code> attribute (UTF-8 by
- * default).
+ * default). How the bytes reach Jackson (parsed in place, memory-mapped or streamed) is decided by
+ * {@link UnmarshalResourceReader}.
+ *
+ * <p>
+ * Besides JSON, resources may be encoded in any binary {@link UnmarshalFormat} for which a mapper
+ * has been {@link #setFormatMappers(Map) registered}. The format is taken from
+ * {@link Unmarshal#format()}, or else from the location's file extension, or else detected from
+ * the resource's leading bytes.
+ *
+ * <p>
+ * During AOT processing the post processor contributes, per bean class, generated code that
+ * injects the annotated fields by name (assigning accessible fields directly) together with the
+ * reflection and resource hints a native image needs. The post processor stays registered at
+ * runtime and the generated code delegates to it, so every feature behaves as it does without
+ * AOT. Bean definitions aren't scanned for annotated fields up front, and instances the generated
+ * code injected are left alone. Any other instance, such as a bean registered after AOT
+ * processing or one initialized outside the context, is still scanned reflectively the first time
+ * its class is seen; in a native image such classes need reflection hints of their own.
+ *
+ * <p>
+ * Annotated fields are discovered once per bean class and cached as {@link UnmarshalMetadata},
+ * together with the resolved location, charset, target type and {@link ObjectReader}. Discovery
+ * happens as early as {@link #postProcessMergedBeanDefinition} for container-created beans, so
+ * subsequent instantiations of the same class only pay for reading the resources.
+ *
+ * <p>
+ * When {@link UnmarshalProperties.Snapshot#isEnabled() snapshots} are enabled and Smile is
+ * available, JSON resources are read through an {@link UnmarshalSnapshotCache}, which keeps a Smile
+ * transcoding of each distinct resource content on disk for later startups.
+ *
+ * <p>
+ * When the {@link UnmarshalProperties.TokenCache#isEnabled() token cache} is enabled, values are
+ * bound from resource contents parsed into tokens once per JVM and held in memory, so application
+ * contexts started later in the same JVM (typically by tests) skip reading and parsing. See
+ * {@link UnmarshalTokenCache}.
+ *
+ * <p>
+ * When {@link UnmarshalProperties.Replay#isEnabled() replaying} is enabled, fields of beans that
+ * aren't singletons, such as prototype and request-scoped beans, are parsed into tokens on the
+ * bean's first instantiation; later instances are bound from those tokens, without resolving or
+ * reading the resource again. The tokens of the
+ * {@link UnmarshalProperties.Replay#getMaxEntries() most recently used} fields are kept.
+ *
+ * <p>
+ * Fields marked {@link Unmarshal#shared() shared} (or all fields, when
+ * {@link UnmarshalProperties#isShared()} is set) are loaded once per resolved resource, charset and
+ * target type, and every such field receives the same instance for the lifetime of the context.
+ *
+ * <p>
+ * When {@link UnmarshalProperties.Prefetch#isEnabled() prefetching} is enabled, the post processor
+ * inspects every eager singleton bean definition as soon as it is registered and starts loading
+ * the resources of their annotated fields concurrently on its {@link #setExecutor(Executor)
+ * executor}. Injection then only waits for a load that is already under way. Loads that no bean
+ * claims by the end of singleton instantiation are discarded.
+ *
+ * <p>
+ * Fields declared as {@link UnmarshalOffHeapList} receive the elements of a top-level array
+ * re-encoded into memory-mapped storage outside the heap, and decode each element on access.
+ *
+ * <p>
+ * A {@link Unmarshal#pointer() pointer} restricts a field to one subtree of its resource, which
+ * is selected by a filtering parser; fields of one class pointing into the same resource share a
+ * single pass over it (see {@link UnmarshalPointers}).
+ *
+ * <p>
+ * <code>http:</code> and <code>https:</code> resources are fetched with timeouts into a disk cache
+ * that is revalidated with conditional requests and used when the origin is unavailable; the
+ * remote resources of a bean are fetched concurrently. See {@link UnmarshalRemoteResources}.
+ *
+ * <p>
+ * A location with a <code>classpath*:</code> prefix or a wildcard is resolved through a
+ * {@link ResourcePatternResolver}; the matching resources are parsed in parallel and combined as
+ * {@link Unmarshal#merge()} says. See {@link UnmarshalPattern}.
+ *
+ * <p>
+ * Resources in {@link UnmarshalFormat#NDJSON newline-delimited JSON} hold one value per line,
+ * which streamed, off-heap and indexed fields take as their elements and collection and array
+ * fields collect; large files are parsed in parallel chunks by {@link UnmarshalNdjson}.
+ *
+ * <p>
+ * {@link Unmarshal#indexBy() Indexed} fields bind the elements of a top-level array straight into
+ * a <code>Map</code> keyed by one of their properties; see {@link UnmarshalIndex}.
+ *
+ * <p>
+ * {@link Unmarshal#compact() Compact} fields are bound to the primitive-backed collections of
+ * {@link UnmarshalCompact} rather than to collections of boxed numbers.
+ *
+ * <p>
+ * {@link Unmarshal#canonicalize() Canonicalized} fields are read with private copies of the
+ * mappers whose deserializers share equal values through a per-load
+ * {@link UnmarshalCanonicalizer}.
+ *
+ * <p>
+ * {@link Unmarshal#lazy() Lazy} fields are declared as {@link Supplier} and receive a memoizing
+ * {@link SingletonSupplier} that loads the resource on its first {@link Supplier#get() get()}. Lazy
+ * fields are never prefetched.
+ *
+ * <p>
+ * Fields declared as {@link UnmarshalRef} are reloaded in the background when their
+ * <code>file:</code> resource changes, using one {@link UnmarshalResourceWatcher} per post processor;
+ * the new value is swapped in atomically and a failed reload keeps the last good value.
+ *
+ * <p>
+ * Fields declared as {@link Stream}, {@link Iterator}, {@link Iterable} or (when Reactor is present)
+ * <code>Flux</code> receive the elements of a top-level JSON array one at a time, bound to the
+ * field's type argument, so the whole array is never held in memory. See {@link UnmarshalStreams}.
+ *
+ * <p>
+ * Fields declared as {@link CompletableFuture} or (when Reactor is present) <code>Mono</code> are
+ * set at once to a handle of a load that resolves and reads the resource on the executor, so the
+ * bean's creation doesn't wait for it; a failed load completes it with an {@link UnmarshalException}.
+ *
+ * <p>
+ * Each field injection is recorded as an <code>unmarshal.field</code> {@link StartupStep} of the
+ * bean factory's {@link ApplicationStartup}, tagged with the bean, field, location, bytes and how
+ * long resolving and loading the resource took. With a {@link #setLoadRecorder load recorder} set,
+ * every load is also reported for metrics; see {@link UnmarshalMetrics}.
  *
  * <p>
  * If an error occurs an {@link UnmarshalException} is thrown.
@@ -36,14 +196,70 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * @see Unmarshal
  * @see UnmarshalAnnotationAutoConfiguration
  */
-public class UnmarshalAnnotationPostProcessor implements BeanPostProcessor {
+public class UnmarshalAnnotationPostProcessor implements MergedBeanDefinitionPostProcessor,
+        BeanRegistrationAotProcessor, BeanFactoryAware, SmartInitializingSingleton, DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(UnmarshalAnnotationPostProcessor.class);
 
+    /** returned by {@link #resolveValue} when a field should be left untouched. */
+    static final Object SKIP = new Object();
+
     private final ConfigurableEnvironment environment;
     private final ResourceLoader resourceLoader;
     private final ObjectMapper objectMapper;
 
+    private UnmarshalProperties properties = new UnmarshalProperties();
+
+    private UnmarshalResourceReader resourceReader = newResourceReader(properties);
+
+    private UnmarshalRemoteResources remoteResources = newRemoteResources(properties);
+
+    private Executor executor = new SimpleAsyncTaskExecutor("unmarshal-");
+
+    private Map<UnmarshalFormat, ObjectMapper> formatMappers;
+
+    /** copies of the format mappers with {@link UnmarshalCanonicalizer#module()}, created on demand. */
+    private final Map<UnmarshalFormat, ObjectMapper> canonicalMappers = new ConcurrentHashMap<>();
+
+    private UnmarshalSnapshotCache snapshotCache;
+
+    private UnmarshalTokenCache tokenCache;
+
+    private UnmarshalResourceWatcher watcher;
+
+    private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
+    private UnmarshalLoadRecorder loadRecorder;
+
+    private final Map<Class<?>, UnmarshalMetadata> metadataCache = new ConcurrentHashMap<>(256);
+
+    private final Map<Field, UnmarshalElement> elementCache = new ConcurrentHashMap<>();
+
+    private final Map<LoadKey, CompletableFuture<Object>> sharedValues = new ConcurrentHashMap<>();
+
+    private final Map<InjectionKey, CompletableFuture<Object>> prefetched = new ConcurrentHashMap<>();
+
+    private final Map<Field, List<UnmarshalElement>> pointerGroups = new ConcurrentHashMap<>();
+
+    /** names of beans defined with a scope other than singleton, whose fields are replayed. */
+    private final Set<String> scopedBeans = ConcurrentHashMap.newKeySet();
+
+    /**
+     * instances injected by code generated ahead of time, by the bean being created and the thread
+     * creating it; held weakly, so an instance whose creation fails isn't kept.
+     */
+    private final Map<AotMark, WeakReference<Object>> injectedAheadOfTime = new ConcurrentHashMap<>();
+
+    /** tokens replayed into non-singleton beans, least recently used first. */
+    @SuppressWarnings("serial")
+    private final Map<ReplayKey, TokenBuffer> replays = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ReplayKey, TokenBuffer> eldest) {
+                    return size() > properties.getReplay().getMaxEntries();
+                }
+            });
+
     /**
      * Constructs the post processor with the collaborators it needs to resolve resource locations
      * and deserialize their contents.
@@ -58,21 +274,296 @@ public class UnmarshalAnnotationPostProcessor implements BeanPostProcessor {
         this.environment = environment;
         this.resourceLoader = resourceLoader;
         this.objectMapper = objectMapper;
+        this.formatMappers = Map.of(UnmarshalFormat.JSON, objectMapper);
+    }
+
+    /**
+     * Sets the tuning properties applied to every field; defaults are used if this is never called.
+     *
+     * @param properties properties bound from the <code>unmarshal.*</code> namespace
+     */
+    public void setProperties(UnmarshalProperties properties) {
+        this.properties = properties;
+        this.resourceReader = newResourceReader(properties);
+        this.remoteResources = newRemoteResources(properties);
+        this.snapshotCache = newSnapshotCache();
+        this.tokenCache = newTokenCache(properties);
+    }
+
+    private static UnmarshalResourceReader newResourceReader(UnmarshalProperties properties) {
+        return new UnmarshalResourceReader(properties.getRead().getMappingThreshold().toBytes());
+    }
+
+    private static UnmarshalRemoteResources newRemoteResources(UnmarshalProperties properties) {
+        UnmarshalProperties.Remote remote = properties.getRemote();
+        if (!remote.isEnabled()) {
+            return null;
+        }
+        Path directory = (remote.getCacheDirectory() != null) ? remote.getCacheDirectory()
+                : Path.of(System.getProperty("java.io.tmpdir"), "unmarshal-remote");
+        return new UnmarshalRemoteResources(directory, remote.getConnectTimeout(), remote.getReadTimeout());
+    }
+
+    private static UnmarshalTokenCache newTokenCache(UnmarshalProperties properties) {
+        UnmarshalProperties.TokenCache cache = properties.getTokenCache();
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        UnmarshalTokenCache shared = UnmarshalTokenCache.shared();
+        shared.requireMaxSize(cache.getMaxSize().toBytes());
+        return shared;
+    }
+
+    /**
+     * Sets the executor that runs background loads such as prefetching. Defaults to a
+     * {@link SimpleAsyncTaskExecutor}.
+     *
+     * @param executor executor for background loads
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Registers the mappers used for binary {@link UnmarshalFormat}s. The JSON mapper is always the
+     * one passed to the constructor; a {@link UnmarshalFormat#JSON JSON} entry here is ignored.
+     *
+     * @param formatMappers mappers keyed by the binary format they read
+     */
+    public void setFormatMappers(Map<UnmarshalFormat, ObjectMapper> formatMappers) {
+        Map<UnmarshalFormat, ObjectMapper> mappers = new EnumMap<>(formatMappers);
+        mappers.put(UnmarshalFormat.JSON, objectMapper);
+        this.formatMappers = mappers;
+        this.canonicalMappers.clear();
+        this.snapshotCache = newSnapshotCache();
+    }
+
+    /**
+     * creates the snapshot cache if snapshots are enabled and a Smile mapper is registered to write
+     * them with. Called whenever either changes, so setter order doesn't matter.
+     */
+    private UnmarshalSnapshotCache newSnapshotCache() {
+        UnmarshalProperties.Snapshot snapshot = properties.getSnapshot();
+        if (!snapshot.isEnabled()) {
+            return null;
+        }
+        ObjectMapper smileMapper = formatMappers.get(UnmarshalFormat.SMILE);
+        if (smileMapper == null) {
+            if (UnmarshalFormat.SMILE.isAvailable(resourceLoader.getClassLoader())) {
+                // mappers not registered yet; the cache is created once they are
+                return null;
+            }
+            logger.warn("@Unmarshal snapshots are enabled but need {} on the classpath; reading JSON directly",
+                    UnmarshalFormat.SMILE.getFactoryClassName());
+            return null;
+        }
+        Path directory = (snapshot.getDirectory() != null) ? snapshot.getDirectory()
+                : Path.of(System.getProperty("java.io.tmpdir"), "unmarshal-snapshots");
+        return new UnmarshalSnapshotCache(directory, objectMapper, smileMapper);
+    }
+
+    /**
+     * Sets the recorder every completed load is reported to, for metrics.
+     *
+     * @param loadRecorder recorder to report loads to, or {@code null} for none
+     */
+    void setLoadRecorder(UnmarshalLoadRecorder loadRecorder) {
+        this.loadRecorder = loadRecorder;
+    }
+
+    UnmarshalLoadRecorder getLoadRecorder() {
+        return loadRecorder;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        if (beanFactory instanceof ConfigurableBeanFactory cbf) {
+            this.applicationStartup = cbf.getApplicationStartup();
+        }
+        if (properties.getPrefetch().isEnabled() && beanFactory instanceof ConfigurableListableBeanFactory clbf) {
+            prefetch(clbf);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (loadRecorder != null) {
+            loadRecorder.startupComplete();
+        }
+        if (!prefetched.isEmpty()) {
+            logger.debug("Discarding {} prefetched @Unmarshal load(s) not claimed by any bean", prefetched.size());
+            prefetched.clear();
+        }
+        if (remoteResources != null) {
+            remoteResources.clear();
+        }
+    }
+
+    /**
+     * starts loading the resources of every eager singleton whose type can be determined without
+     * instantiating anything. Beans whose metadata can't be built are skipped here; the problem is
+     * reported when the bean itself is created.
+     */
+    private void prefetch(ConfigurableListableBeanFactory beanFactory) {
+        Map<String, UnmarshalMetadata> beans = new LinkedHashMap<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition beanDefinition = beanFactory.getMergedBeanDefinition(beanName);
+            if (beanDefinition.isAbstract() || !beanDefinition.isSingleton() || beanDefinition.isLazyInit()) {
+                continue;
+            }
+            Class<?> beanType = beanFactory.getType(beanName, false);
+            if (beanType == null || beanFactory.isFactoryBean(beanName)) {
+                continue;
+            }
+            UnmarshalMetadata metadata;
+            try {
+                metadata = findMetadata(beanType);
+            } catch (RuntimeException e) {
+                logger.debug("Not prefetching @Unmarshal fields of bean '{}': {}", beanName, e.toString());
+                continue;
+            }
+            beans.put(beanName, metadata);
+            fetchRemoteResources(beanName, metadata.getElements());
+        }
+        beans.forEach((beanName, metadata) -> {
+            for (UnmarshalElement element : metadata.getElements()) {
+                if (element.getKind() != UnmarshalElement.Kind.VALUE) {
+                    continue;
+                }
+                Resource resource;
+                try {
+                    resource = getResource(element);
+                } catch (UnmarshalException e) {
+                    logger.debug("Not prefetching @Unmarshal field '{}': {}", element.getField().getName(),
+                            e.toString());
+                    continue;
+                }
+                if (resource.exists()) {
+                    prefetched.put(new InjectionKey(beanName, element.getField()),
+                            isShared(element) ? sharedFuture(element, resource, true)
+                                    : CompletableFuture.supplyAsync(() -> unmarshal(element, resource), executor));
+                }
+            }
+        });
+        logger.debug("Prefetching {} @Unmarshal load(s)", prefetched.size());
+    }
+
+    /**
+     * starts fetching the remote resources of eagerly loaded elements on the executor, so they
+     * download concurrently rather than one field at a time. Elements whose tokens are replayed
+     * aren't fetched again.
+     */
+    private void fetchRemoteResources(String beanName, List<UnmarshalElement> elements) {
+        if (remoteResources == null) {
+            return;
+        }
+        for (UnmarshalElement element : elements) {
+            if (element.getKind() != UnmarshalElement.Kind.SUPPLIER && !element.getKind().isAsync()
+                    && element.getPattern() == null
+                    && UnmarshalRemoteResources.isRemote(element.getLocation()) && !isReplayed(beanName, element)) {
+                remoteResources.prefetch(element.getLocation(), executor);
+            }
+        }
+    }
+
+    /**
+     * scans the bean's class for annotated fields ahead of its creation, unless code generated
+     * ahead of time injects them; instances that code didn't inject are scanned on
+     * initialization instead.
+     */
+    @Override
+    public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+        if (!AotDetector.useGeneratedArtifacts()) {
+            findMetadata(beanType);
+        }
+        if (!beanDefinition.isSingleton()) {
+            scopedBeans.add(beanName);
+        }
+    }
+
+    @Override
+    public BeanRegistrationAotContribution processAheadOfTime(RegisteredBean registeredBean) {
+        UnmarshalMetadata metadata = findMetadata(registeredBean.getBeanClass());
+        return metadata.isEmpty() ? null : new UnmarshalAotContribution(metadata);
+    }
+
+    /**
+     * keeps this post processor registered in AOT-optimized contexts: generated code delegates to
+     * it (through {@link UnmarshalFieldValueResolver}) rather than replacing it.
+     */
+    @Override
+    public boolean isBeanExcludedFromAotProcessing() {
+        return false;
+    }
+
+    /**
+     * finds the element for a single annotated field, for code generated ahead of time that names
+     * its fields rather than scanning for them.
+     */
+    UnmarshalElement findElement(Class<?> declaringClass, String fieldName) {
+        Field field = ReflectionUtils.findField(declaringClass, fieldName);
+        if (field == null || field.getDeclaringClass() != declaringClass) {
+            throw new IllegalStateException("No field '" + fieldName + "' declared on " + declaringClass.getName());
+        }
+        return elementCache.computeIfAbsent(field,
+                f -> buildElement(f, AnnotatedElementUtils.findMergedAnnotation(f, Unmarshal.class)));
+    }
+
+    /**
+     * records that code generated ahead of time has injected an instance of the named bean being
+     * created on the current thread, so {@link #postProcessBeforeInitialization} leaves that
+     * instance alone. The mark names the instance itself, so one left behind by a failed creation
+     * never skips another instance.
+     */
+    void markInjectedAheadOfTime(String beanName, Object instance) {
+        injectedAheadOfTime.put(new AotMark(beanName, Thread.currentThread().getId()), new WeakReference<>(instance));
     }
 
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
-        ReflectionUtils.doWithFields(bean.getClass(), field -> {
+        WeakReference<Object> injected = (beanName != null)
+                ? injectedAheadOfTime.remove(new AotMark(beanName, Thread.currentThread().getId())) : null;
+        if (injected != null && injected.get() == bean) {
+            return bean;
+        }
+        UnmarshalMetadata metadata = findMetadata(bean.getClass());
+        if (!metadata.isEmpty()) {
+            fetchRemoteResources(beanName, metadata.getElements());
+            for (UnmarshalElement element : metadata.getElements()) {
+                try {
+                    processAnnotatedField(bean, beanName, element);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Not allowed to access field '" + element.getField().getName()
+                            + "': " + e, e);
+                }
+            }
+        }
+        return bean;
+    }
+
+    UnmarshalMetadata findMetadata(Class<?> clazz) {
+        UnmarshalMetadata metadata = metadataCache.get(clazz);
+        if (metadata == null) {
+            metadata = metadataCache.computeIfAbsent(clazz, this::buildMetadata);
+        }
+        return metadata;
+    }
+
+    private UnmarshalMetadata buildMetadata(Class<?> clazz) {
+        if (!AnnotationUtils.isCandidateClass(clazz, Unmarshal.class)) {
+            return UnmarshalMetadata.EMPTY;
+        }
+        List<UnmarshalElement> elements = new ArrayList<>();
+        ReflectionUtils.doWithFields(clazz, field -> {
             Unmarshal annotation = AnnotatedElementUtils.findMergedAnnotation(field, Unmarshal.class);
             if (annotation != null) {
-                processAnnotatedField(bean, field, annotation);
+                elements.add(buildElement(field, annotation));
             }
         });
-        return bean;
+        return UnmarshalMetadata.forElements(clazz, elements);
     }
 
-    private void processAnnotatedField(Object bean, Field field, Unmarshal annotation)
-            throws IllegalAccessException {
+    private UnmarshalElement buildElement(Field field, Unmarshal annotation) {
         if (Modifier.isStatic(field.getModifiers())) {
             throw new UnmarshalException(
                     "@" + Unmarshal.class.getSimpleName() + " annotation is not supported on static fields.");
@@ -82,16 +573,6 @@ public class UnmarshalAnnotationPostProcessor implements BeanPostProcessor {
             throw new UnmarshalException(
                     "'location' is a required parameter for @" + Unmarshal.class.getSimpleName());
         }
-        Resource resource = resourceLoader.getResource(environment.resolvePlaceholders(location));
-        if (!resource.exists()) {
-            if (annotation.required()) {
-                throw new UnmarshalException("No resource was found for " + resource.getDescription());
-            }
-            logger.debug("Skipping optional @Unmarshal field '{}': resource '{}' not found",
-                    field.getName(), resource.getDescription());
-            return;
-        }
-        ReflectionUtils.makeAccessible(field);
         Charset charset;
         try {
             charset = Charset.forName(annotation.charset());
@@ -99,20 +580,800 @@ public class UnmarshalAnnotationPostProcessor implements BeanPostProcessor {
             throw new UnmarshalException("Unsupported charset '" + annotation.charset() + "' on field '"
                     + field.getName() + "'", e);
         }
+        ReflectionUtils.makeAccessible(field);
         JavaType javaType = objectMapper.getTypeFactory().constructType(field.getGenericType());
-        // field.set failures here would indicate a library bug (a type mismatch between the
-        // unmarshalled value and the field). Intentionally left to surface raw rather than be
-        // wrapped, so the bug doesn't get masked.
-        field.set(bean, unmarshal(javaType, resource, charset));
+        UnmarshalElement.Kind kind = resolveKind(field, annotation);
+        if (kind != UnmarshalElement.Kind.VALUE) {
+            javaType = javaType.containedTypeOrUnknown(0);
+        }
+        if (annotation.compact()) {
+            javaType = compactType(field, kind, javaType);
+        }
+        UnmarshalIndex index =
+                StringUtils.hasText(annotation.indexBy()) ? index(field, annotation, kind, javaType) : null;
+        if (annotation.canonicalize() != UnmarshalCanonicalization.NONE
+                && (kind.isStreaming() || kind == UnmarshalElement.Kind.OFF_HEAP)) {
+            throw new UnmarshalException("Canonicalized @" + Unmarshal.class.getSimpleName() + " field '"
+                    + field.getName() + "' can't also be streamed or off-heap");
+        }
+        JsonPointer pointer = null;
+        if (StringUtils.hasLength(annotation.pointer())) {
+            try {
+                pointer = JsonPointer.compile(annotation.pointer());
+            } catch (IllegalArgumentException e) {
+                throw new UnmarshalException("Invalid pointer '" + annotation.pointer() + "' on field '"
+                        + field.getName() + "'", e);
+            }
+        }
+        String resolvedLocation = environment.resolvePlaceholders(location);
+        UnmarshalPattern pattern = UnmarshalPattern.isPattern(resolvedLocation)
+                ? pattern(field, annotation, kind, javaType) : null;
+        UnmarshalFormat format = resolveFormat(field, annotation.format(), resolvedLocation, charset);
+        if (format == UnmarshalFormat.NDJSON) {
+            checkLines(field, annotation, kind, javaType, pointer, pattern, index);
+        }
+        return new UnmarshalElement(field, annotation, kind, resolvedLocation, charset, format, javaType, pointer,
+                createReader(format, javaType, pointer,
+                        annotation.canonicalize() != UnmarshalCanonicalization.NONE),
+                index, pattern);
+    }
+
+    /**
+     * checks that a field can be read from newline-delimited JSON: streamed, off-heap and indexed
+     * fields take one line per element, and other fields must collect the lines.
+     */
+    private static void checkLines(Field field, Unmarshal annotation, UnmarshalElement.Kind kind, JavaType javaType,
+            JsonPointer pointer, UnmarshalPattern pattern, UnmarshalIndex index) {
+        String prefix = "NDJSON @" + Unmarshal.class.getSimpleName() + " field '" + field.getName() + "' ";
+        if (pointer != null || pattern != null || annotation.compact()) {
+            throw new UnmarshalException(prefix + "can't also have a pointer or a location pattern, or be compact");
+        }
+        if (!kind.isStreaming() && kind != UnmarshalElement.Kind.OFF_HEAP && index == null
+                && !UnmarshalNdjson.isCollectable(javaType)) {
+            throw new UnmarshalException(prefix + "must be declared as a Collection or an array, not "
+                    + field.getGenericType().getTypeName());
+        }
+    }
+
+    private JavaType compactType(Field field, UnmarshalElement.Kind kind, JavaType javaType) {
+        JavaType compact =
+                kind.isStreaming() ? null : UnmarshalCompact.compactType(objectMapper.getTypeFactory(), javaType);
+        if (compact == null) {
+            throw new UnmarshalException("Compact @" + Unmarshal.class.getSimpleName() + " field '"
+                    + field.getName() + "' must be a List of Integer, Long or Double, or a Map from String to one"
+                    + " of those, not " + field.getGenericType().getTypeName());
+        }
+        return compact;
+    }
+
+    private static UnmarshalIndex index(Field field, Unmarshal annotation, UnmarshalElement.Kind kind,
+            JavaType javaType) {
+        String prefix = "Indexed @" + Unmarshal.class.getSimpleName() + " field '" + field.getName() + "' ";
+        if (kind.isStreaming() || kind == UnmarshalElement.Kind.OFF_HEAP || annotation.compact()) {
+            throw new UnmarshalException(prefix + "can't also be streamed, off-heap or compact");
+        }
+        try {
+            return UnmarshalIndex.of(annotation.indexBy(), annotation.duplicateKeys(), javaType);
+        } catch (IllegalArgumentException e) {
+            throw new UnmarshalException(prefix + e.getMessage(), e);
+        }
+    }
+
+    private static UnmarshalPattern pattern(Field field, Unmarshal annotation, UnmarshalElement.Kind kind,
+            JavaType javaType) {
+        String prefix = "@" + Unmarshal.class.getSimpleName() + " field '" + field.getName() + "' with a location"
+                + " pattern ";
+        if (kind.isStreaming() || kind == UnmarshalElement.Kind.OFF_HEAP || annotation.compact()
+                || StringUtils.hasText(annotation.indexBy())) {
+            throw new UnmarshalException(prefix + "can't also be streamed, off-heap, compact or indexed");
+        }
+        try {
+            return UnmarshalPattern.of(annotation.merge(), javaType);
+        } catch (IllegalArgumentException e) {
+            throw new UnmarshalException(prefix + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * resolves the format a field is read in: the declared format, or else the one its location's
+     * extension implies, or else {@link UnmarshalFormat#AUTO} if it must be detected from the
+     * resource's leading bytes. Detection is pointless when only JSON is available, and impossible
+     * for text decoded with a non-Unicode charset, so both resolve to JSON.
+     */
+    private UnmarshalFormat resolveFormat(Field field, UnmarshalFormat format, String location, Charset charset) {
+        if (format == UnmarshalFormat.AUTO) {
+            UnmarshalFormat implied = UnmarshalFormat.fromLocation(location);
+            format = (implied != null && hasMapper(implied)) ? implied : UnmarshalFormat.AUTO;
+        }
+        if (format == UnmarshalFormat.AUTO) {
+            return (formatMappers.size() == 1 || !UnmarshalResourceReader.isByteParseable(charset))
+                    ? UnmarshalFormat.JSON : UnmarshalFormat.AUTO;
+        }
+        if (!hasMapper(format)) {
+            throw new UnmarshalException("Format " + format + " of field '" + field.getName() + "' requires "
+                    + format.getFactoryClassName() + " on the classpath");
+        }
+        return format;
+    }
+
+    private boolean hasMapper(UnmarshalFormat format) {
+        return format == UnmarshalFormat.NDJSON || formatMappers.containsKey(format);
+    }
+
+    /**
+     * creates the reader for a resolved format; {@link UnmarshalFormat#AUTO} yields a reader that
+     * detects among JSON and every registered binary format, trying JSON first. A pointer applies
+     * to each candidate, since detection hands the document to the matching candidate as it is.
+     */
+    private ObjectReader createReader(UnmarshalFormat format, JavaType javaType, JsonPointer pointer,
+            boolean canonical) {
+        if (format != UnmarshalFormat.AUTO) {
+            return at(mapper(format, canonical).readerFor(javaType), pointer);
+        }
+        List<ObjectReader> candidates = new ArrayList<>();
+        candidates.add(at(mapper(UnmarshalFormat.JSON, canonical).readerFor(javaType), pointer));
+        formatMappers.keySet().forEach(candidate -> {
+            if (candidate.isBinary()) {
+                candidates.add(at(mapper(candidate, canonical).readerFor(javaType), pointer));
+            }
+        });
+        return candidates.get(0).withFormatDetection(candidates.toArray(new ObjectReader[0]));
+    }
+
+    /**
+     * @return the mapper registered for a format or, for canonicalized fields, a copy of it whose
+     *         deserializers canonicalize; the application's mappers are never modified
+     */
+    private ObjectMapper mapper(UnmarshalFormat format, boolean canonical) {
+        UnmarshalFormat mapperFormat = (format == UnmarshalFormat.NDJSON) ? UnmarshalFormat.JSON : format;
+        ObjectMapper mapper = formatMappers.get(mapperFormat);
+        return canonical ? canonicalMappers.computeIfAbsent(mapperFormat,
+                f -> mapper.copy().registerModule(UnmarshalCanonicalizer.module())) : mapper;
+    }
+
+    private static ObjectReader at(ObjectReader reader, JsonPointer pointer) {
+        return (pointer != null) ? reader.at(pointer) : reader;
+    }
+
+    private static UnmarshalElement.Kind resolveKind(Field field, Unmarshal annotation) {
+        Class<?> type = field.getType();
+        if (annotation.lazy()) {
+            if (type != Supplier.class) {
+                throw new UnmarshalException("Lazy @" + Unmarshal.class.getSimpleName() + " field '"
+                        + field.getName() + "' must be declared as " + Supplier.class.getName());
+            }
+            return UnmarshalElement.Kind.SUPPLIER;
+        }
+        if (type == UnmarshalRef.class) {
+            return UnmarshalElement.Kind.REF;
+        }
+        if (type == UnmarshalOffHeapList.class) {
+            return UnmarshalElement.Kind.OFF_HEAP;
+        }
+        if (type == Stream.class) {
+            return UnmarshalElement.Kind.STREAM;
+        }
+        if (type == Iterator.class) {
+            return UnmarshalElement.Kind.ITERATOR;
+        }
+        if (type == Iterable.class) {
+            return UnmarshalElement.Kind.ITERABLE;
+        }
+        if (type.getName().equals(UnmarshalStreams.FLUX_CLASS_NAME)) {
+            return UnmarshalElement.Kind.FLUX;
+        }
+        if (type == CompletableFuture.class) {
+            return UnmarshalElement.Kind.FUTURE;
+        }
+        if (type.getName().equals(UnmarshalStreams.MONO_CLASS_NAME)) {
+            return UnmarshalElement.Kind.MONO;
+        }
+        return UnmarshalElement.Kind.VALUE;
+    }
+
+    private void processAnnotatedField(Object bean, String beanName, UnmarshalElement element)
+            throws IllegalAccessException {
+        Object value = resolveValue(beanName, element);
+        if (value != SKIP) {
+            // field.set failures here would indicate a library bug (a type mismatch between the
+            // unmarshalled value and the field). Intentionally left to surface raw rather than be
+            // wrapped, so the bug doesn't get masked.
+            element.getField().set(bean, value);
+        }
+    }
+
+    /**
+     * resolves the value to assign to an annotated field: the unmarshalled value itself, or the
+     * supplier or stream that produces it, depending on the element's kind.
+     *
+     * @return the value to assign, or {@link #SKIP} if an optional resource is missing and the
+     *         field should keep its current value
+     */
+    Object resolveValue(String beanName, UnmarshalElement element) {
+        StartupStep step = applicationStartup.start("unmarshal.field")
+                .tag("beanName", String.valueOf(beanName))
+                .tag("field", element::toString)
+                .tag("location", element.getLocation())
+                .tag("kind", () -> element.getKind().name());
+        try {
+            if (element.getKind().isAsync()) {
+                step.tag("async", "true");
+                CompletableFuture<Object> future = loadAsync(beanName, element);
+                return (element.getKind() == UnmarshalElement.Kind.FUTURE) ? future : UnmarshalStreams.mono(future);
+            }
+            CompletableFuture<Object> claimed = (element.getKind() == UnmarshalElement.Kind.VALUE)
+                    ? claim(beanName, element) : null;
+            if (claimed != null) {
+                step.tag("claimed", "true");
+                return await(claimed);
+            }
+            ReplayKey replayKey = replayKey(beanName, element);
+            TokenBuffer replay = (replayKey != null) ? replays.get(replayKey) : null;
+            if (replay != null) {
+                step.tag("replayed", "true");
+                try {
+                    return bind(element, replay);
+                } catch (IOException e) {
+                    throw new UnmarshalException("Failed to bind replayed resource: " + element.getLocation(), e);
+                }
+            }
+            long start = System.nanoTime();
+            Resource resource = getResource(element);
+            boolean exists = resource.exists();
+            step.tag("resolveNanos", () -> Long.toString(System.nanoTime() - start));
+            if (!exists) {
+                step.tag("found", "false");
+                if (element.getAnnotation().required()) {
+                    throw new UnmarshalException("No resource was found for " + resource.getDescription());
+                }
+                logger.debug("Skipping optional @Unmarshal field '{}': resource '{}' not found",
+                        element.getField().getName(), resource.getDescription());
+                return SKIP;
+            }
+            UnmarshalElement.Kind kind = element.getKind();
+            if (kind == UnmarshalElement.Kind.SUPPLIER) {
+                return SingletonSupplier.of(() -> load(beanName, element, resource));
+            }
+            if (kind.isStreaming()) {
+                return UnmarshalStreams.adapt(kind, () -> openIterator(element, resource));
+            }
+            long loadStart = System.nanoTime();
+            Object value = (kind == UnmarshalElement.Kind.REF) ? reloadableRef(beanName, element, resource)
+                    : load(beanName, element, resource);
+            step.tag("loadNanos", () -> Long.toString(System.nanoTime() - loadStart));
+            step.tag("bytes", () -> Long.toString(contentLength(resource)));
+            return value;
+        } finally {
+            step.end();
+        }
+    }
+
+    /**
+     * resolves and loads an element's resource on the executor, so the thread creating the bean
+     * doesn't wait for it. The future completes with {@code null} if an optional resource is
+     * missing, and exceptionally with an {@link UnmarshalException} if the load fails.
+     */
+    private CompletableFuture<Object> loadAsync(String beanName, UnmarshalElement element) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    Resource resource = getResource(element);
+                    if (resource.exists()) {
+                        future.complete(load(beanName, element, resource));
+                    } else if (element.getAnnotation().required()) {
+                        throw new UnmarshalException("No resource was found for " + resource.getDescription());
+                    } else {
+                        future.complete(null);
+                    }
+                } catch (UnmarshalException e) {
+                    future.completeExceptionally(e);
+                } catch (Throwable e) {
+                    future.completeExceptionally(
+                            new UnmarshalException("Failed to load resource: " + element.getLocation(), e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(
+                    new UnmarshalException("Background load of resource rejected: " + element.getLocation(), e));
+        }
+        return future;
+    }
+
+    /**
+     * @return the element's resource, the local copy of a remote one (see
+     *         {@link UnmarshalRemoteResources}), or for a location pattern the
+     *         {@link UnmarshalPattern.Matches resources it matches}
+     */
+    private Resource getResource(UnmarshalElement element) {
+        if (element.getPattern() == null) {
+            return (remoteResources != null && UnmarshalRemoteResources.isRemote(element.getLocation()))
+                    ? remoteResources.fetch(element.getLocation()) : resourceLoader.getResource(element.getLocation());
+        }
+        try {
+            return UnmarshalPattern.resolve(ResourcePatternUtils.getResourcePatternResolver(resourceLoader),
+                    element.getLocation());
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to resolve location pattern: " + element.getLocation(), e);
+        }
+    }
+
+    /**
+     * @return the load of an element that's already been started, prefetched for this bean or
+     *         shared with another, or {@code null} if there's none
+     */
+    private CompletableFuture<Object> claim(String beanName, UnmarshalElement element) {
+        CompletableFuture<Object> future = (beanName != null)
+                ? prefetched.remove(new InjectionKey(beanName, element.getField())) : null;
+        return (future == null && isShared(element)) ? sharedValues.get(loadKey(element)) : future;
+    }
+
+    private Object load(String beanName, UnmarshalElement element, Resource resource) {
+        CompletableFuture<Object> future = claim(beanName, element);
+        if (future == null && isShared(element)) {
+            future = sharedFuture(element, resource, false);
+        }
+        if (future != null) {
+            return await(future);
+        }
+        ReplayKey replayKey = replayKey(beanName, element);
+        if (replayKey != null) {
+            return recordLoad(element, resource, () -> replay(element, resource, replayKey));
+        }
+        List<UnmarshalElement> group = (beanName != null && !scopedBeans.contains(beanName)) ? pointerGroup(element)
+                : List.of();
+        return (group.size() > 1) ? recordLoad(element, resource, () -> readGroup(beanName, element, group, resource))
+                : unmarshal(element, resource);
+    }
+
+    /**
+     * @return the key an element's tokens are replayed under for the named bean, or {@code null}
+     *         if the bean is a singleton or the element isn't bound from a single parse
+     */
+    private ReplayKey replayKey(String beanName, UnmarshalElement element) {
+        if (beanName == null || !properties.getReplay().isEnabled() || !scopedBeans.contains(beanName)
+                || element.getKind() != UnmarshalElement.Kind.VALUE || element.getIndex() != null
+                || element.getPattern() != null || element.getFormat() == UnmarshalFormat.NDJSON
+                || element.getAnnotation().canonicalize() != UnmarshalCanonicalization.NONE || isShared(element)) {
+            return null;
+        }
+        return new ReplayKey(element.getLocation(), element.getCharset(), element.getFormat(), element.getPointer());
+    }
+
+    private boolean isReplayed(String beanName, UnmarshalElement element) {
+        ReplayKey key = replayKey(beanName, element);
+        return key != null && replays.containsKey(key);
+    }
+
+    /**
+     * parses the resource into tokens, keeps them for later instances of non-singleton beans, and
+     * binds this instance's value from them.
+     */
+    private Object replay(UnmarshalElement element, Resource resource, ReplayKey key) {
+        logger.debug("Loading resource '{}' as tokens to replay into fields of type '{}'", resource,
+                element.getJavaType().getTypeName());
+        try {
+            TokenBuffer tokens = replays.get(key);
+            if (tokens == null) {
+                UnmarshalTokenCache.Key cacheKey = (tokenCache != null) ? UnmarshalTokenCache.Key.of(resource,
+                        element.getReader(), element.getCharset(), element.getFormat(), element.getPointer()) : null;
+                tokens = (cacheKey != null) ? tokenCache.get(cacheKey, () -> tokenize(element, resource))
+                        : tokenize(element, resource);
+                if (tokens == null) {
+                    return unmarshal(element.getReader(), resource, element.getCharset());
+                }
+                TokenBuffer loaded = tokens;
+                tokens = replays.computeIfAbsent(key, k -> loaded);
+            }
+            return bind(element, tokens);
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to read InputStream for resource: " + resource.getDescription(), e);
+        }
+    }
+
+    /**
+     * finds the fields declared alongside an element that point into the same resource, in the
+     * same charset and a known format, so one parse can serve all of them.
+     *
+     * @return the element's group, including the element itself; empty if it can't be grouped
+     */
+    private List<UnmarshalElement> pointerGroup(UnmarshalElement element) {
+        if (!isGroupable(element)) {
+            return List.of();
+        }
+        return pointerGroups.computeIfAbsent(element.getField(), field -> {
+            List<UnmarshalElement> group = new ArrayList<>();
+            for (UnmarshalElement other : findMetadata(field.getDeclaringClass()).getElements()) {
+                if (isGroupable(other) && other.getLocation().equals(element.getLocation())
+                        && other.getCharset().equals(element.getCharset())
+                        && other.getFormat() == element.getFormat()) {
+                    group.add(other);
+                }
+            }
+            return List.copyOf(group);
+        });
+    }
+
+    private boolean isGroupable(UnmarshalElement element) {
+        return element.getPointer() != null && element.getKind() == UnmarshalElement.Kind.VALUE
+                && element.getIndex() == null && element.getPattern() == null
+                && element.getAnnotation().canonicalize() == UnmarshalCanonicalization.NONE
+                && element.getFormat() != UnmarshalFormat.AUTO && !isShared(element);
+    }
+
+    /**
+     * extracts the subtrees of every element in a pointer group in one pass and binds them. The
+     * element's own value is returned; the others are left for the same bean's remaining fields
+     * to claim, as if prefetched. Only singletons are grouped: an instance of another scope that
+     * fails before claiming them would leave them for the next instance, which would then see
+     * stale values. A member whose pointer selects nothing is left to load, and fail,
+     * on its own.
+     */
+    private Object readGroup(String beanName, UnmarshalElement element, List<UnmarshalElement> group,
+            Resource resource) {
+        logger.debug("Extracting {} pointers from resource '{}' in one pass", group.size(), resource);
+        Set<JsonPointer> pointers = new HashSet<>();
+        group.forEach(member -> pointers.add(member.getPointer()));
+        Map<JsonPointer, TokenBuffer> subtrees;
+        try (InputStream in = UnmarshalResourceReader.openStream(resource);
+                JsonParser parser = createParser(element, in)) {
+            subtrees = UnmarshalPointers.extract(parser, pointers);
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to read InputStream for resource: " + resource.getDescription(), e);
+        }
+        Object value = SKIP;
+        for (UnmarshalElement member : group) {
+            TokenBuffer subtree = subtrees.get(member.getPointer());
+            if (subtree == null) {
+                continue;
+            }
+            CompletableFuture<Object> bound = new CompletableFuture<>();
+            try (JsonParser parser = subtree.asParser()) {
+                bound.complete(formatMappers.get(member.getFormat()).readerFor(member.getJavaType()).readValue(parser));
+            } catch (IOException | RuntimeException e) {
+                bound.completeExceptionally(new UnmarshalException("Failed to bind pointer '" + member.getPointer()
+                        + "' of resource: " + resource.getDescription(), e));
+            }
+            if (member.getField().equals(element.getField())) {
+                value = await(bound);
+            } else {
+                prefetched.put(new InjectionKey(beanName, member.getField()), bound);
+            }
+        }
+        return (value != SKIP) ? value : read(element, resource);
+    }
+
+    private JsonParser createParser(UnmarshalElement element, InputStream in) throws IOException {
+        JsonFactory factory = formatMappers.get(element.getFormat()).getFactory();
+        return UnmarshalResourceReader.isByteParseable(element.getCharset()) ? factory.createParser(in)
+                : factory.createParser(new InputStreamReader(in, element.getCharset()));
+    }
+
+    /**
+     * loads the initial value of an {@link UnmarshalRef} field and, for file resources, watches the
+     * file so the value is reloaded when it changes. The watcher holds the reference weakly, so
+     * references of discarded prototype beans stop being reloaded, and their watches are dropped,
+     * once collected.
+     */
+    private UnmarshalRef<Object> reloadableRef(String beanName, UnmarshalElement element, Resource resource) {
+        UnmarshalRef<Object> ref = UnmarshalRef.of(load(beanName, element, resource));
+        if (!resource.isFile() || resource instanceof UnmarshalRemoteResources.RemoteResource) {
+            logger.debug("Not watching resource '{}' of field '{}': not a local file", resource,
+                    element.getField().getName());
+            return ref;
+        }
+        try {
+            watcher().watch(resource.getFile().toPath(), ref, target -> reload(target, element, resource));
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to watch resource: " + resource.getDescription(), e);
+        }
+        return ref;
+    }
+
+    private synchronized UnmarshalResourceWatcher watcher() throws IOException {
+        if (watcher == null) {
+            watcher = new UnmarshalResourceWatcher(properties.getReload().getDebounce());
+        }
+        return watcher;
+    }
+
+    private void reload(UnmarshalRef<Object> ref, UnmarshalElement element, Resource resource) {
+        try {
+            ref.reloaded(unmarshal(element, resource));
+            logger.info("Reloaded resource '{}' into field '{}'", resource, element.getField().getName());
+        } catch (RuntimeException e) {
+            ref.reloadFailed(e);
+            logger.warn("Failed to reload resource '{}' into field '{}'; keeping the last good value", resource,
+                    element.getField().getName(), e);
+        }
+    }
+
+    private boolean isShared(UnmarshalElement element) {
+        return element.getAnnotation().shared() || properties.isShared();
+    }
+
+    private static LoadKey loadKey(UnmarshalElement element) {
+        return new LoadKey(element.getLocation(), element.getCharset(), element.getFormat(), element.getPointer(),
+                element.getJavaType(), element.getKind() == UnmarshalElement.Kind.OFF_HEAP, element.getIndex(),
+                element.getPattern());
+    }
+
+    private CompletableFuture<Object> sharedFuture(UnmarshalElement element, Resource resource, boolean async) {
+        LoadKey key = loadKey(element);
+        CompletableFuture<Object> future = sharedValues.get(key);
+        if (future == null) {
+            future = sharedValues.computeIfAbsent(key, k -> async
+                    ? CompletableFuture.supplyAsync(() -> unmarshal(element, resource), executor)
+                    : CompletableFuture.completedFuture(unmarshal(element, resource)));
+        } else {
+            logger.debug("Reusing shared value of resource '{}' for field '{}'", resource, element.getField().getName());
+        }
+        return future;
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new UnmarshalException("Background load failed", e.getCause());
+        }
+    }
+
+    private Object unmarshal(UnmarshalElement element, Resource resource) {
+        return recordLoad(element, resource, () -> read(element, resource));
+    }
+
+    private Object recordLoad(UnmarshalElement element, Resource resource, Supplier<Object> loader) {
+        if (loadRecorder == null) {
+            return loader.get();
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object value = loader.get();
+            success = true;
+            return value;
+        } finally {
+            loadRecorder.record(new UnmarshalLoadRecorder.Load(element.getLocation(),
+                    element.getJavaType().toCanonical(), contentLength(resource), System.nanoTime() - start, success));
+        }
+    }
+
+    private Object read(UnmarshalElement element, Resource resource) {
+        UnmarshalCanonicalization canonicalization = element.getAnnotation().canonicalize();
+        if (canonicalization == UnmarshalCanonicalization.NONE) {
+            return read(element, resource, snapshotCache);
+        }
+        UnmarshalCanonicalizer canonicalizer =
+                new UnmarshalCanonicalizer(canonicalization, properties.getCanonicalize().getMaxEntries());
+        Object value = read(element.withReader(element.getReader().withAttribute(UnmarshalCanonicalizer.ATTRIBUTE,
+                canonicalizer)), resource, null);
+        logger.debug("Canonicalized {} duplicate value(s) of resource '{}' for field '{}' ({} distinct), saving"
+                + " about {} bytes", canonicalizer.getDuplicates(), resource, element.getField().getName(),
+                canonicalizer.size(), canonicalizer.getSavedBytes());
+        return value;
+    }
+
+    /**
+     * @param snapshots the snapshot cache to read JSON through, or {@code null} to read directly
+     */
+    private Object read(UnmarshalElement element, Resource resource, UnmarshalSnapshotCache snapshots) {
+        if (resource instanceof UnmarshalPattern.Matches matches) {
+            logger.debug("Loading {} as object of type '{}'", matches, element.getJavaType().getTypeName());
+            return element.getPattern().read(matches, element.getReader(),
+                    (reader, part) -> resourceReader.read(reader, part, element.getCharset()));
+        }
+        if (element.getKind() == UnmarshalElement.Kind.OFF_HEAP) {
+            return readOffHeap(element, resource);
+        }
+        if (element.getIndex() != null) {
+            return readIndexed(element, resource);
+        }
+        if (element.getFormat() == UnmarshalFormat.NDJSON) {
+            return readLines(element, resource);
+        }
+        if (tokenCache != null) {
+            UnmarshalTokenCache.Key key = UnmarshalTokenCache.Key.of(resource, element.getReader(),
+                    element.getCharset(), element.getFormat(), element.getPointer());
+            if (key != null) {
+                return readTokens(element, resource, key);
+            }
+        }
+        if (snapshots != null && element.getFormat() == UnmarshalFormat.JSON) {
+            logger.debug("Loading resource '{}' as object of type '{}' through snapshot cache", resource,
+                    element.getJavaType().getTypeName());
+            try {
+                return snapshots.read(element, resource);
+            } catch (IOException e) {
+                throw new UnmarshalException("Failed to read InputStream for resource: " + resource.getDescription(),
+                        e);
+            }
+        }
+        return unmarshal(element.getReader(), resource, element.getCharset());
+    }
+
+    /**
+     * binds the resource's tokens from the {@link UnmarshalTokenCache}, parsing the resource into
+     * it first on a miss. The tokens already had the field's pointer applied.
+     */
+    private Object readTokens(UnmarshalElement element, Resource resource, UnmarshalTokenCache.Key key) {
+        logger.debug("Loading resource '{}' as object of type '{}' through token cache", resource,
+                element.getJavaType().getTypeName());
+        try {
+            TokenBuffer tokens = tokenCache.get(key, () -> tokenize(element, resource));
+            return (tokens != null) ? bind(element, tokens)
+                    : unmarshal(element.getReader(), resource, element.getCharset());
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to read InputStream for resource: " + resource.getDescription(), e);
+        }
+    }
+
+    /**
+     * @return the resource's tokens, with the field's pointer applied, or {@code null} if it holds
+     *         none
+     */
+    private TokenBuffer tokenize(UnmarshalElement element, Resource resource) throws IOException {
+        return (TokenBuffer) resourceReader.read(element.getReader().forType(TokenBuffer.class), resource,
+                element.getCharset());
+    }
+
+    /**
+     * binds a value from tokens, within the reader's own read constraints; binding a parser
+     * directly ignores the reader's pointer, which the tokens already had applied.
+     */
+    private static Object bind(UnmarshalElement element, TokenBuffer tokens) throws IOException {
+        try (JsonParser parser = tokens.asParser(element.getReader().getFactory().streamReadConstraints())) {
+            return element.getReader().readValue(parser);
+        }
+    }
+
+    /**
+     * binds each line of newline-delimited JSON to the field's element type, in parallel where
+     * possible, and collects them. See {@link UnmarshalNdjson}.
+     */
+    private Object readLines(UnmarshalElement element, Resource resource) {
+        logger.debug("Loading lines of resource '{}' as '{}'", resource, element.getJavaType().getTypeName());
+        JavaType javaType = element.getJavaType();
+        try {
+            return UnmarshalNdjson.collect(resourceReader.readLines(
+                    element.getReader().forType(javaType.getContentType()), resource, element.getCharset()), javaType);
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to read InputStream for resource: " + resource.getDescription(), e);
+        }
+    }
+
+    /**
+     * stores the elements of a top-level array in an {@link UnmarshalOffHeapList}, encoded as Smile
+     * when a Smile mapper is registered and as JSON otherwise.
+     */
+    private UnmarshalOffHeapList<Object> readOffHeap(UnmarshalElement element, Resource resource) {
+        logger.debug("Storing resource '{}' off-heap as elements of type '{}'", resource,
+                element.getJavaType().getTypeName());
+        ObjectMapper recordMapper = formatMappers.getOrDefault(UnmarshalFormat.SMILE, objectMapper);
+        Path directory = (properties.getOffHeap().getDirectory() != null) ? properties.getOffHeap().getDirectory()
+                : Path.of(System.getProperty("java.io.tmpdir"), "unmarshal-off-heap");
+        try (MappingIterator<TokenBuffer> elements = readValues(element,
+                element.getReader().forType(TokenBuffer.class), resource)) {
+            return UnmarshalOffHeapList.write(elements, recordMapper.getFactory(),
+                    recordMapper.readerFor(element.getJavaType()), directory);
+        } catch (IOException | RuntimeJsonMappingException e) {
+            throw new UnmarshalException("Failed to store resource off-heap: " + resource.getDescription(), e);
+        }
+    }
+
+    private Map<Object, Object> readIndexed(UnmarshalElement element, Resource resource) {
+        logger.debug("Indexing resource '{}' into '{}'", resource, element.getJavaType().getTypeName());
+        try (MappingIterator<TokenBuffer> elements = readValues(element,
+                element.getReader().forType(TokenBuffer.class), resource)) {
+            return element.getIndex().read(elements, element.getReader());
+        } catch (IOException | RuntimeJsonMappingException e) {
+            throw new UnmarshalException("Failed to index resource: " + resource.getDescription(), e);
+        }
+    }
+
+    /**
+     * @return the resource's length for instrumentation, or {@code -1} if it can't be determined
+     */
+    private static long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the resource's elements: the values of its lines if it's newline-delimited, and
+     *         otherwise those of its top-level array
+     */
+    private <T> MappingIterator<T> readValues(UnmarshalElement element, ObjectReader reader, Resource resource)
+            throws IOException {
+        return (element.getFormat() == UnmarshalFormat.NDJSON)
+                ? resourceReader.readLineValues(reader, resource, element.getCharset())
+                : resourceReader.readValues(reader, resource, element.getCharset());
+    }
+
+    private UnmarshalIterator<Object> openIterator(UnmarshalElement element, Resource resource) {
+        logger.debug("Streaming resource '{}' as elements of type '{}'", resource,
+                element.getJavaType().getTypeName());
+        try {
+            return new UnmarshalIterator<>(
+                    readValues(element, element.getReader(), resource),
+                    resource.getDescription());
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to read InputStream for resource: " + resource.getDescription(), e);
+        }
     }
 
     Object unmarshal(JavaType javaType, Resource resource, Charset charset) {
-        logger.debug("Loading resource '{}' as object of type '{}'", resource, javaType.getTypeName());
-        try (Reader r = new InputStreamReader(resource.getInputStream(), charset)) {
-            return objectMapper.readValue(r, javaType);
+        return unmarshal(objectMapper.readerFor(javaType), resource, charset);
+    }
+
+    Object unmarshal(ObjectReader reader, Resource resource, Charset charset) {
+        logger.debug("Loading resource '{}' as object of type '{}'", resource, reader.getValueType().getTypeName());
+        try {
+            return resourceReader.read(reader, resource, charset);
         } catch (IOException e) {
             throw new UnmarshalException("Failed to read InputStream for resource: " + resource.getDescription(), e);
         }
     }
 
+    @Override
+    public void destroy() throws IOException {
+        synchronized (this) {
+            if (watcher != null) {
+                watcher.close();
+                watcher = null;
+            }
+        }
+        afterSingletonsInstantiated();
+        if (tokenCache != null) {
+            UnmarshalTokenCache.Statistics statistics = tokenCache.getStatistics();
+            logger.info("@Unmarshal token cache: {} hit(s), {} soft hit(s), {} miss(es), {} eviction(s); holding {}"
+                    + " resource(s) of {} bytes", statistics.hits(), statistics.softHits(), statistics.misses(),
+                    statistics.evictions(), statistics.entries(), statistics.size());
+        }
+        sharedValues.clear();
+        metadataCache.clear();
+        elementCache.clear();
+        pointerGroups.clear();
+        scopedBeans.clear();
+        replays.clear();
+        injectedAheadOfTime.clear();
+    }
+
+    /**
+     * identifies one shareable load: the same resolved location decoded with the same charset and
+     * format, read at the same pointer into the same type, held on or off the heap, indexed and
+     * combined the same way, always yields an interchangeable value. Keying by location rather than
+     * resource lets a shared value be found without resolving, or fetching, the resource again.
+     */
+    private record LoadKey(String location, Charset charset, UnmarshalFormat format, JsonPointer pointer,
+            JavaType javaType, boolean offHeap, UnmarshalIndex index, UnmarshalPattern pattern) {
+    }
+
+    /**
+     * identifies a single field of a single named bean, which is what a prefetched load is
+     * destined for.
+     */
+    private record InjectionKey(String beanName, Field field) {
+    }
+
+    /**
+     * identifies the creation of a named bean on one thread, which code generated ahead of time
+     * has injected.
+     */
+    private record AotMark(String beanName, long threadId) {
+    }
+
+    /**
+     * identifies the tokens replayed into fields of non-singleton beans: the same location, read in
+     * the same charset and format and narrowed by the same pointer, always yields the same tokens.
+     */
+    private record ReplayKey(String location, Charset charset, UnmarshalFormat format, JsonPointer pointer) {
+    }
+
 }
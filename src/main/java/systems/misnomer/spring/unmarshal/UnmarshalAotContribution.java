@@ -0,0 +1,127 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.List;
+import org.springframework.aot.generate.AccessControl;
+import org.springframework.aot.generate.GeneratedClass;
+import org.springframework.aot.generate.GeneratedMethod;
+import org.springframework.aot.generate.GenerationContext;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.beans.factory.aot.BeanRegistrationAotContribution;
+import org.springframework.beans.factory.aot.BeanRegistrationCode;
+import org.springframework.beans.factory.aot.CodeWarnings;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.javapoet.ClassName;
+import org.springframework.javapoet.CodeBlock;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link BeanRegistrationAotContribution} that injects the {@link Unmarshal} fields of one bean
+ * class from generated code. The generated instance post processor names each field, assigning it
+ * directly when it is accessible, non-final and required, and otherwise setting it through
+ * {@link UnmarshalFieldValueResolver#resolveAndSet}.
+ * <p>
+ * The contribution also registers the runtime hints a native image needs: reflection on the
+ * annotated fields, binding hints for their types, a proxy for the synthesized annotation, and
+ * resource hints for <code>classpath:</code> and <code>classpath*:</code> locations, whose
+ * wildcards become resource hint patterns.
+ */
+final class UnmarshalAotContribution implements BeanRegistrationAotContribution {
+
+    private static final String REGISTERED_BEAN_PARAMETER = "registeredBean";
+
+    private static final String INSTANCE_PARAMETER = "instance";
+
+    private final Class<?> target;
+
+    private final List<UnmarshalElement> elements;
+
+    UnmarshalAotContribution(UnmarshalMetadata metadata) {
+        this.target = metadata.getTargetClass();
+        this.elements = metadata.getElements();
+    }
+
+    @Override
+    public void applyTo(GenerationContext generationContext, BeanRegistrationCode beanRegistrationCode) {
+        GeneratedClass generatedClass = generationContext.getGeneratedClasses()
+                .addForFeatureComponent("Unmarshal", this.target, type -> {
+                    type.addJavadoc("@Unmarshal field injection for {@link $T}.", this.target);
+                    type.addModifiers(javax.lang.model.element.Modifier.PUBLIC);
+                });
+        GeneratedMethod generatedMethod = generatedClass.getMethods().add("apply", method -> {
+            method.addJavadoc("Inject the @Unmarshal fields.");
+            method.addModifiers(javax.lang.model.element.Modifier.PUBLIC,
+                    javax.lang.model.element.Modifier.STATIC);
+            method.addParameter(RegisteredBean.class, REGISTERED_BEAN_PARAMETER);
+            method.addParameter(this.target, INSTANCE_PARAMETER);
+            method.returns(this.target);
+            CodeWarnings codeWarnings = new CodeWarnings();
+            codeWarnings.detectDeprecation(this.target);
+            method.addCode(generateMethodCode(codeWarnings, generatedClass.getName()));
+            codeWarnings.suppress(method);
+        });
+        beanRegistrationCode.addInstancePostProcessor(generatedMethod.toMethodReference());
+        registerHints(generationContext.getRuntimeHints());
+    }
+
+    private CodeBlock generateMethodCode(CodeWarnings codeWarnings, ClassName generatedClassName) {
+        CodeBlock.Builder code = CodeBlock.builder();
+        for (UnmarshalElement element : this.elements) {
+            code.addStatement(generateStatement(codeWarnings, generatedClassName, element));
+        }
+        code.addStatement("return $T.injected($L, $L)", UnmarshalFieldValueResolver.class, REGISTERED_BEAN_PARAMETER,
+                INSTANCE_PARAMETER);
+        return code.build();
+    }
+
+    private CodeBlock generateStatement(CodeWarnings codeWarnings, ClassName generatedClassName,
+            UnmarshalElement element) {
+        Field field = element.getField();
+        Class<?> declaring = field.getDeclaringClass();
+        CodeBlock declaringClass = AccessControl.forClass(declaring).isAccessibleFrom(generatedClassName)
+                ? CodeBlock.of("$T.class", declaring)
+                : CodeBlock.of("$T.resolveClassName($S, null)", ClassUtils.class, declaring.getName());
+        boolean assignable = element.getAnnotation().required()
+                && !java.lang.reflect.Modifier.isFinal(field.getModifiers())
+                && AccessControl.forMember(field).isAccessibleFrom(generatedClassName);
+        if (!assignable) {
+            return CodeBlock.of("$T.resolveAndSet($L, $L, $L, $S)", UnmarshalFieldValueResolver.class,
+                    REGISTERED_BEAN_PARAMETER, INSTANCE_PARAMETER, declaringClass, field.getName());
+        }
+        codeWarnings.detectDeprecation(field);
+        if (field.getGenericType() instanceof ParameterizedType) {
+            codeWarnings.register("unchecked");
+            codeWarnings.register("rawtypes");
+        }
+        return CodeBlock.of("$L.$L = ($T) $T.resolve($L, $L, $S)", INSTANCE_PARAMETER, field.getName(),
+                field.getType(), UnmarshalFieldValueResolver.class, REGISTERED_BEAN_PARAMETER, declaringClass,
+                field.getName());
+    }
+
+    private void registerHints(RuntimeHints hints) {
+        BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+        hints.proxies().registerJdkProxy(Unmarshal.class);
+        for (UnmarshalElement element : this.elements) {
+            Field field = element.getField();
+            hints.reflection().registerField(field);
+            bindingRegistrar.registerReflectionHints(hints.reflection(), field.getGenericType());
+            if (element.getAnnotation().compact()) {
+                bindingRegistrar.registerReflectionHints(hints.reflection(), element.getJavaType().getRawClass());
+            }
+            String location = element.getLocation();
+            String prefix = location.startsWith(ResourceLoader.CLASSPATH_URL_PREFIX)
+                    ? ResourceLoader.CLASSPATH_URL_PREFIX
+                    : location.startsWith(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX)
+                            ? ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX : null;
+            if (prefix != null) {
+                String path = location.substring(prefix.length());
+                hints.resources().registerPattern(path.startsWith("/") ? path.substring(1) : path);
+            }
+        }
+    }
+
+}
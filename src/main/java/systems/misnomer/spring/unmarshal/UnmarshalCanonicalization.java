@@ -0,0 +1,24 @@
+package systems.misnomer.spring.unmarshal;
+
+/**
+ * which equal values of one load are replaced by a single shared instance, to shrink the heap
+ * taken by repetitive data.
+ *
+ * @see Unmarshal#canonicalize()
+ */
+public enum UnmarshalCanonicalization {
+
+    /** Every value is a distinct instance, as Jackson binds it. */
+    NONE,
+
+    /** Equal strings share one instance. */
+    STRINGS,
+
+    /**
+     * Equal strings, boxed numbers and records share one instance. Records are compared with
+     * <code>equals</code> and assumed to be immutable: a record holding a mutable component, such
+     * as a <code>List</code>, would then be shared between every place it occurs.
+     */
+    VALUES
+
+}
@@ -0,0 +1,208 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * replaces equal values bound during one load with a single shared instance, for
+ * {@link Unmarshal#canonicalize()} fields.
+ * <p>
+ * The {@link #module() module} wraps the deserializers of strings, boxed numbers, records and
+ * untyped values so that every value they bind passes through the canonicalizer found in the
+ * {@link #ATTRIBUTE reader's attributes}. Without that attribute the wrappers return values as
+ * they are, but they still defeat some of Jackson's shortcuts for strings, so the module is only
+ * ever registered on private copies of the mappers. Untyped values (<code>Object</code>, and the
+ * maps and lists Jackson binds them to) are canonicalized after binding, by walking them; map keys
+ * need no help, as the parser already shares the names of repeated properties.
+ * <p>
+ * The table is bounded: once it holds {@link #UnmarshalCanonicalizer(UnmarshalCanonicalization, int)
+ * maxEntries} values, new values are no longer added, while values already in it are still
+ * shared. The bytes saved are estimated from the shallow size of each dropped duplicate, assuming
+ * compressed object pointers and Latin-1 strings.
+ */
+final class UnmarshalCanonicalizer {
+
+    /** reader attribute holding the canonicalizer of the current load. */
+    static final String ATTRIBUTE = UnmarshalCanonicalizer.class.getName();
+
+    /** shallow size of each record class: a header and one compressed reference per component. */
+    private static final ClassValue<Long> RECORD_SIZES = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return align(12 + 4L * type.getRecordComponents().length);
+        }
+    };
+
+    private final UnmarshalCanonicalization canonicalization;
+
+    private final int maxEntries;
+
+    private final Map<Object, Object> table = new ConcurrentHashMap<>();
+
+    private final LongAdder duplicates = new LongAdder();
+
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * @param canonicalization which values to share; not {@link UnmarshalCanonicalization#NONE}
+     * @param maxEntries upper bound on the number of distinct values held
+     */
+    UnmarshalCanonicalizer(UnmarshalCanonicalization canonicalization, int maxEntries) {
+        this.canonicalization = canonicalization;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return a module whose deserializers consult the canonicalizer of the current load
+     */
+    static Module module() {
+        SimpleModule module = new SimpleModule(UnmarshalCanonicalizer.class.getSimpleName());
+        module.setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc,
+                    JsonDeserializer<?> deserializer) {
+                Class<?> type = beanDesc.getBeanClass();
+                if (type == Object.class) {
+                    return new CanonicalizingDeserializer(deserializer, true);
+                }
+                if (type == String.class || type.isRecord() || isBoxed(type)) {
+                    return new CanonicalizingDeserializer(deserializer, false);
+                }
+                return deserializer;
+            }
+        });
+        return module;
+    }
+
+    private static boolean isBoxed(Class<?> type) {
+        return type == Integer.class || type == Long.class || type == Double.class || type == Float.class
+                || type == Short.class || type == BigDecimal.class || type == BigInteger.class;
+    }
+
+    /**
+     * @param value a bound value
+     * @return the value's shared instance, which is the value itself if it's the first of its kind
+     *         or not canonicalized
+     */
+    Object canonicalize(Object value) {
+        if (value instanceof String string) {
+            return share(value, align(24) + align(16 + string.length()));
+        }
+        if (canonicalization == UnmarshalCanonicalization.VALUES) {
+            if (value instanceof Record) {
+                return share(value, RECORD_SIZES.get(value.getClass()));
+            }
+            if (value != null && isBoxed(value.getClass())) {
+                return share(value, (value instanceof BigDecimal || value instanceof BigInteger) ? 40 : 16);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * canonicalizes the strings and values held in untyped maps and lists, in place.
+     */
+    @SuppressWarnings("unchecked")
+    Object canonicalizeTree(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) map).entrySet()) {
+                entry.setValue(canonicalizeTree(entry.getValue()));
+            }
+            return value;
+        }
+        if (value instanceof List<?> list) {
+            for (ListIterator<Object> elements = ((List<Object>) list).listIterator(); elements.hasNext();) {
+                elements.set(canonicalizeTree(elements.next()));
+            }
+            return value;
+        }
+        return canonicalize(value);
+    }
+
+    private Object share(Object value, long size) {
+        Object shared = table.get(value);
+        if (shared == null) {
+            if (table.size() >= maxEntries) {
+                return value;
+            }
+            shared = table.putIfAbsent(value, value);
+            if (shared == null) {
+                return value;
+            }
+        }
+        duplicates.increment();
+        savedBytes.add(size);
+        return shared;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * @return how many bound values were replaced by a shared instance
+     */
+    long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return estimated bytes of heap no longer taken by the replaced values
+     */
+    long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    /**
+     * @return how many distinct values are held
+     */
+    int size() {
+        return table.size();
+    }
+
+    /**
+     * passes every value its delegate binds through the current load's canonicalizer, if any.
+     */
+    private static final class CanonicalizingDeserializer extends DelegatingDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean tree;
+
+        CanonicalizingDeserializer(JsonDeserializer<?> delegatee, boolean tree) {
+            super(delegatee);
+            this.tree = tree;
+        }
+
+        @Override
+        protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+            return new CanonicalizingDeserializer(newDelegatee, tree);
+        }
+
+        @Override
+        public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            Object value = _delegatee.deserialize(p, ctxt);
+            if (ctxt.getAttribute(ATTRIBUTE) instanceof UnmarshalCanonicalizer canonicalizer) {
+                return tree ? canonicalizer.canonicalizeTree(value) : canonicalizer.canonicalize(value);
+            }
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,660 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * immutable, primitive-backed collections that {@link Unmarshal#compact() compact} fields are bound
+ * to. A JSON array of ten million integers bound to <code>List&lt;Integer&gt;</code> costs an
+ * <code>Integer</code> object per element on top of the list's reference array; bound to an
+ * {@link IntList} it costs a single <code>int[]</code>.
+ * <p>
+ * Values are parsed straight from the token stream into a primitive array, without boxing and
+ * without an intermediate <code>ArrayList</code>. The array grows by half as elements arrive and
+ * is trimmed to size once, at the end. Elements that aren't plain numbers (numeric strings, or
+ * <code>null</code>) are coerced exactly as they would be for <code>int[]</code>,
+ * <code>long[]</code> or <code>double[]</code>.
+ * <p>
+ * The collections implement {@link List} and {@link Map}, so fields can keep their declared
+ * <code>List&lt;Integer&gt;</code> or <code>Map&lt;String, Long&gt;</code> types. Their
+ * primitive accessors, such as {@link IntList#getInt(int)} and
+ * {@link NumberMap#getLong(Object, long)}, read values without boxing; fields can also be declared
+ * with these types directly, in which case <code>compact</code> is implied.
+ */
+public final class UnmarshalCompact {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private UnmarshalCompact() {
+    }
+
+    /**
+     * works out the type a compact field is bound to.
+     *
+     * @param typeFactory factory for the resulting type
+     * @param declared the field's declared type (or type argument, for lazy and reloadable fields)
+     * @return the compact type, or {@code null} if <code>declared</code> has no compact counterpart
+     */
+    static JavaType compactType(TypeFactory typeFactory, JavaType declared) {
+        Class<?> raw = declared.getRawClass();
+        if (raw == int[].class || raw == long[].class || raw == double[].class
+                || NumberList.class.isAssignableFrom(raw) || NumberMap.class.isAssignableFrom(raw)) {
+            return declared;
+        }
+        if (declared.isCollectionLikeType()) {
+            Class<? extends NumberList<?>> listClass = listClass(declared.getContentType().getRawClass());
+            return (listClass != null && raw.isAssignableFrom(listClass)) ? typeFactory.constructType(listClass)
+                    : null;
+        }
+        if (declared.isMapLikeType() && declared.getKeyType().getRawClass() == String.class
+                && raw.isAssignableFrom(NumberMap.class)) {
+            Class<?> valueClass = declared.getContentType().getRawClass();
+            return (listClass(valueClass) != null) ? typeFactory.constructParametricType(NumberMap.class, valueClass)
+                    : null;
+        }
+        return null;
+    }
+
+    private static Class<? extends NumberList<?>> listClass(Class<?> elementClass) {
+        if (elementClass == Integer.class) {
+            return IntList.class;
+        }
+        if (elementClass == Long.class) {
+            return LongList.class;
+        }
+        if (elementClass == Double.class) {
+            return DoubleList.class;
+        }
+        return null;
+    }
+
+    private static Supplier<Builder> builderFor(Class<?> elementClass) {
+        if (elementClass == Integer.class) {
+            return IntBuilder::new;
+        }
+        if (elementClass == Long.class) {
+            return LongBuilder::new;
+        }
+        if (elementClass == Double.class) {
+            return DoubleBuilder::new;
+        }
+        return null;
+    }
+
+    private static int grow(int capacity) {
+        int grown = capacity + Math.max(capacity >> 1, INITIAL_CAPACITY);
+        if (grown < 0 || grown > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Compact collections are limited to " + (Integer.MAX_VALUE - 8) + " elements");
+        }
+        return grown;
+    }
+
+    /**
+     * an immutable list of numbers backed by a primitive array.
+     *
+     * @param <V> boxed element type
+     */
+    public abstract static class NumberList<V extends Number> extends AbstractList<V> implements RandomAccess {
+
+        NumberList() {
+        }
+
+        /**
+         * @param index element index
+         * @return the element, widened to a <code>long</code> if necessary
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public abstract long getLong(int index);
+
+        /**
+         * @param index element index
+         * @return the element, widened to a <code>double</code> if necessary
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public abstract double getDouble(int index);
+
+    }
+
+    /** an immutable list of <code>int</code> values. */
+    @JsonDeserialize(using = IntListDeserializer.class)
+    public static final class IntList extends NumberList<Integer> {
+
+        private final int[] values;
+
+        IntList(int[] values) {
+            this.values = values;
+        }
+
+        /**
+         * @param index element index
+         * @return the element
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        public int getInt(int index) {
+            return values[Objects.checkIndex(index, values.length)];
+        }
+
+        @Override
+        public long getLong(int index) {
+            return getInt(index);
+        }
+
+        @Override
+        public double getDouble(int index) {
+            return getInt(index);
+        }
+
+        @Override
+        public Integer get(int index) {
+            return getInt(index);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        /**
+         * @return the elements as a stream, without boxing
+         */
+        public IntStream intStream() {
+            return Arrays.stream(values);
+        }
+
+        /**
+         * @return a copy of the elements
+         */
+        public int[] toIntArray() {
+            return values.clone();
+        }
+
+    }
+
+    /** an immutable list of <code>long</code> values. */
+    @JsonDeserialize(using = LongListDeserializer.class)
+    public static final class LongList extends NumberList<Long> {
+
+        private final long[] values;
+
+        LongList(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public long getLong(int index) {
+            return values[Objects.checkIndex(index, values.length)];
+        }
+
+        @Override
+        public double getDouble(int index) {
+            return getLong(index);
+        }
+
+        @Override
+        public Long get(int index) {
+            return getLong(index);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        /**
+         * @return the elements as a stream, without boxing
+         */
+        public LongStream longStream() {
+            return Arrays.stream(values);
+        }
+
+        /**
+         * @return a copy of the elements
+         */
+        public long[] toLongArray() {
+            return values.clone();
+        }
+
+    }
+
+    /** an immutable list of <code>double</code> values. */
+    @JsonDeserialize(using = DoubleListDeserializer.class)
+    public static final class DoubleList extends NumberList<Double> {
+
+        private final double[] values;
+
+        DoubleList(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public long getLong(int index) {
+            return (long) getDouble(index);
+        }
+
+        @Override
+        public double getDouble(int index) {
+            return values[Objects.checkIndex(index, values.length)];
+        }
+
+        @Override
+        public Double get(int index) {
+            return getDouble(index);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        /**
+         * @return the elements as a stream, without boxing
+         */
+        public DoubleStream doubleStream() {
+            return Arrays.stream(values);
+        }
+
+        /**
+         * @return a copy of the elements
+         */
+        public double[] toDoubleArray() {
+            return values.clone();
+        }
+
+    }
+
+    /**
+     * an immutable map from strings to numbers. Keys are held in an array, in document order, and
+     * values in a {@link NumberList} at the same positions; lookups go through an open-addressing
+     * table of key positions. When a key repeats in the document, its last value wins, as it would
+     * for any other <code>Map</code>.
+     *
+     * @param <V> boxed value type
+     */
+    @JsonDeserialize(using = NumberMapDeserializer.class)
+    public static final class NumberMap<V extends Number> extends AbstractMap<String, V> {
+
+        private final String[] keys;
+
+        private final NumberList<V> values;
+
+        /** key position + 1 for each occupied slot, 0 for free ones; the length is a power of two. */
+        private final int[] table;
+
+        NumberMap(String[] keys, NumberList<V> values, int[] table) {
+            this.keys = keys;
+            this.values = values;
+            this.table = table;
+        }
+
+        /**
+         * @param key a key
+         * @return the key's position in {@link #keyList()} and {@link #valueList()}, or
+         *         {@code -1} if the map doesn't contain it
+         */
+        public int indexOf(Object key) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            int mask = table.length - 1;
+            for (int slot = slot(key.hashCode(), mask);; slot = (slot + 1) & mask) {
+                int entry = table[slot];
+                if (entry == 0) {
+                    return -1;
+                }
+                if (keys[entry - 1].equals(key)) {
+                    return entry - 1;
+                }
+            }
+        }
+
+        /**
+         * @param key a key
+         * @param defaultValue value returned for a missing key
+         * @return the key's value, widened to a <code>long</code> if necessary
+         */
+        public long getLong(Object key, long defaultValue) {
+            int index = indexOf(key);
+            return (index >= 0) ? values.getLong(index) : defaultValue;
+        }
+
+        /**
+         * @param key a key
+         * @param defaultValue value returned for a missing key
+         * @return the key's value, widened to a <code>double</code> if necessary
+         */
+        public double getDouble(Object key, double defaultValue) {
+            int index = indexOf(key);
+            return (index >= 0) ? values.getDouble(index) : defaultValue;
+        }
+
+        /**
+         * @return the keys, in document order
+         */
+        public List<String> keyList() {
+            return List.of(keys);
+        }
+
+        /**
+         * @return the values, at the same positions as their keys in {@link #keyList()}
+         */
+        public NumberList<V> valueList() {
+            return values;
+        }
+
+        @Override
+        public V get(Object key) {
+            int index = indexOf(key);
+            return (index >= 0) ? values.get(index) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<>() {
+
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return new Iterator<>() {
+
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < keys.length;
+                        }
+
+                        @Override
+                        public Entry<String, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int current = index++;
+                            return new SimpleImmutableEntry<>(keys[current], values.get(current));
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+
+            };
+        }
+
+        private static int slot(int hash, int mask) {
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+    }
+
+    /**
+     * accumulates parsed values into a growing primitive array. Plain numbers are read straight
+     * from the parser; anything else goes through Jackson's primitive deserializer, so coercion and
+     * null handling match <code>int[]</code> and friends.
+     */
+    private abstract static class Builder {
+
+        int size;
+
+        abstract void add(JsonParser parser, DeserializationContext context) throws IOException;
+
+        abstract void set(int index, JsonParser parser, DeserializationContext context) throws IOException;
+
+        abstract NumberList<?> build();
+
+    }
+
+    private static final class IntBuilder extends Builder {
+
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        @Override
+        void add(JsonParser parser, DeserializationContext context) throws IOException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            set(size++, parser, context);
+        }
+
+        @Override
+        void set(int index, JsonParser parser, DeserializationContext context) throws IOException {
+            values[index] = parser.hasToken(JsonToken.VALUE_NUMBER_INT) ? parser.getIntValue()
+                    : context.readValue(parser, int.class);
+        }
+
+        @Override
+        NumberList<?> build() {
+            return new IntList((size == values.length) ? values : Arrays.copyOf(values, size));
+        }
+
+    }
+
+    private static final class LongBuilder extends Builder {
+
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        @Override
+        void add(JsonParser parser, DeserializationContext context) throws IOException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            set(size++, parser, context);
+        }
+
+        @Override
+        void set(int index, JsonParser parser, DeserializationContext context) throws IOException {
+            values[index] = parser.hasToken(JsonToken.VALUE_NUMBER_INT) ? parser.getLongValue()
+                    : context.readValue(parser, long.class);
+        }
+
+        @Override
+        NumberList<?> build() {
+            return new LongList((size == values.length) ? values : Arrays.copyOf(values, size));
+        }
+
+    }
+
+    private static final class DoubleBuilder extends Builder {
+
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        @Override
+        void add(JsonParser parser, DeserializationContext context) throws IOException {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(size));
+            }
+            set(size++, parser, context);
+        }
+
+        @Override
+        void set(int index, JsonParser parser, DeserializationContext context) throws IOException {
+            values[index] = parser.currentToken().isNumeric() ? parser.getDoubleValue()
+                    : context.readValue(parser, double.class);
+        }
+
+        @Override
+        NumberList<?> build() {
+            return new DoubleList((size == values.length) ? values : Arrays.copyOf(values, size));
+        }
+
+    }
+
+    private abstract static class NumberListDeserializer extends StdDeserializer<NumberList<?>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Supplier<Builder> builder;
+
+        NumberListDeserializer(Class<?> listClass, Supplier<Builder> builder) {
+            super(listClass);
+            this.builder = builder;
+        }
+
+        @Override
+        public NumberList<?> deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!parser.isExpectedStartArrayToken()) {
+                return (NumberList<?>) context.handleUnexpectedToken(handledType(), parser);
+            }
+            Builder values = builder.get();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                values.add(parser, context);
+            }
+            return values.build();
+        }
+
+    }
+
+    static final class IntListDeserializer extends NumberListDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        IntListDeserializer() {
+            super(IntList.class, IntBuilder::new);
+        }
+
+    }
+
+    static final class LongListDeserializer extends NumberListDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        LongListDeserializer() {
+            super(LongList.class, LongBuilder::new);
+        }
+
+    }
+
+    static final class DoubleListDeserializer extends NumberListDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        DoubleListDeserializer() {
+            super(DoubleList.class, DoubleBuilder::new);
+        }
+
+    }
+
+    /**
+     * reads a JSON object into a {@link NumberMap}; contextualized on the map's value type, since a
+     * single annotation serves every <code>NumberMap&lt;V&gt;</code>.
+     */
+    static final class NumberMapDeserializer extends StdDeserializer<NumberMap<?>> implements ContextualDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Supplier<Builder> builder;
+
+        NumberMapDeserializer() {
+            this(null);
+        }
+
+        private NumberMapDeserializer(Supplier<Builder> builder) {
+            super(NumberMap.class);
+            this.builder = builder;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) {
+            JavaType type = (property != null) ? property.getType() : context.getContextualType();
+            Class<?> valueClass = (type != null) ? type.getContentType().getRawClass() : null;
+            Supplier<Builder> contextual = builderFor(valueClass);
+            if (contextual == null) {
+                throw new IllegalArgumentException(
+                        "NumberMap values must be Integer, Long or Double, not " + valueClass);
+            }
+            return new NumberMapDeserializer(contextual);
+        }
+
+        @Override
+        public NumberMap<?> deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String key;
+            if (parser.isExpectedStartObjectToken()) {
+                key = parser.nextFieldName();
+            } else if (parser.hasToken(JsonToken.FIELD_NAME)) {
+                key = parser.currentName();
+            } else {
+                return (NumberMap<?>) context.handleUnexpectedToken(handledType(), parser);
+            }
+            Builder values = builder.get();
+            String[] keys = new String[INITIAL_CAPACITY];
+            int[] table = new int[INITIAL_CAPACITY * 2];
+            for (; key != null; key = parser.nextFieldName()) {
+                parser.nextToken();
+                int mask = table.length - 1;
+                int slot = NumberMap.slot(key.hashCode(), mask);
+                while (table[slot] != 0 && !keys[table[slot] - 1].equals(key)) {
+                    slot = (slot + 1) & mask;
+                }
+                if (table[slot] != 0) {
+                    values.set(table[slot] - 1, parser, context);
+                    continue;
+                }
+                if (values.size == keys.length) {
+                    keys = Arrays.copyOf(keys, grow(values.size));
+                }
+                keys[values.size] = key;
+                table[slot] = values.size + 1;
+                values.add(parser, context);
+                // keep the table at most half full
+                if (values.size * 2 > table.length) {
+                    table = rehash(keys, values.size, table.length * 2);
+                }
+            }
+            int size = values.size;
+            String[] trimmed = (size == keys.length) ? keys : Arrays.copyOf(keys, size);
+            @SuppressWarnings({"rawtypes", "unchecked"})
+            NumberMap<?> map = new NumberMap(trimmed, values.build(), table);
+            return map;
+        }
+
+        private static int[] rehash(String[] keys, int size, int length) {
+            int[] table = new int[length];
+            int mask = length - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = NumberMap.slot(keys[i].hashCode(), mask);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+            return table;
+        }
+
+    }
+
+}
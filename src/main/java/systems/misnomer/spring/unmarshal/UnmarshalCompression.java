@@ -0,0 +1,144 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * compression codecs {@link Unmarshal} resources may be stored in. Compressed resources are
+ * recognized by file extension (<code>users.json.gz</code>) or, when the extension doesn't name a
+ * known codec or data format, by their leading magic bytes, and are decompressed as a stream
+ * straight into the parser.
+ * <p>
+ * gzip is supported by the JDK. Zstandard and XZ need <code>com.github.luben:zstd-jni</code> and
+ * <code>org.tukaani:xz</code> respectively, which are looked up reflectively so both stay optional.
+ */
+enum UnmarshalCompression {
+
+    /** gzip (RFC 1952), via {@link GZIPInputStream}. */
+    GZIP(null, new byte[] {0x1f, (byte) 0x8b}, "gz", "gzip"),
+
+    /** <a href="https://facebook.github.io/zstd/">Zstandard</a>, via zstd-jni. */
+    ZSTD("com.github.luben.zstd.ZstdInputStream", new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd}, "zst",
+            "zstd"),
+
+    /** <a href="https://tukaani.org/xz/">XZ</a>, via XZ for Java. */
+    XZ("org.tukaani.xz.XZInputStream", new byte[] {(byte) 0xfd, '7', 'z', 'X', 'Z', 0}, "xz");
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_MAGIC_LENGTH = 6;
+
+    private final String streamClassName;
+    private final byte[] magic;
+    private final List<String> extensions;
+
+    UnmarshalCompression(String streamClassName, byte[] magic, String... extensions) {
+        this.streamClassName = streamClassName;
+        this.magic = magic;
+        this.extensions = List.of(extensions);
+    }
+
+    /**
+     * @param in compressed bytes
+     * @return a stream of the decompressed bytes
+     * @throws IOException if the stream header is invalid or the codec's library is missing
+     */
+    InputStream decompress(InputStream in) throws IOException {
+        if (streamClassName == null) {
+            return new GZIPInputStream(in, GZIP_BUFFER_SIZE);
+        }
+        ClassLoader classLoader = UnmarshalCompression.class.getClassLoader();
+        if (!ClassUtils.isPresent(streamClassName, classLoader)) {
+            throw new IOException(name() + " compressed resources require " + streamClassName + " on the classpath");
+        }
+        try {
+            Constructor<?> constructor =
+                    ClassUtils.resolveClassName(streamClassName, classLoader).getConstructor(InputStream.class);
+            return (InputStream) constructor.newInstance(in);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Failed to open " + name() + " stream", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Failed to open " + name() + " stream", e);
+        }
+    }
+
+    /**
+     * @param filename a resource's file name, may be {@code null}
+     * @return the codec its extension names, or {@code null} if it names none
+     */
+    static UnmarshalCompression fromFilename(String filename) {
+        String extension = StringUtils.getFilenameExtension(filename);
+        if (extension == null) {
+            return null;
+        }
+        extension = extension.toLowerCase(Locale.ROOT);
+        for (UnmarshalCompression compression : values()) {
+            if (compression.extensions.contains(extension)) {
+                return compression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param filename a resource's file name, may be {@code null}
+     * @return the name without a trailing compression extension, so <code>users.smile.gz</code>
+     *         still denotes Smile
+     */
+    static String stripExtension(String filename) {
+        return (fromFilename(filename) != null) ? StringUtils.stripFilenameExtension(filename) : filename;
+    }
+
+    /**
+     * @param header the first bytes of a resource, possibly fewer than any magic number
+     * @return the codec whose magic number the header starts with, or {@code null}
+     */
+    static UnmarshalCompression fromHeader(byte[] header) {
+        for (UnmarshalCompression compression : values()) {
+            byte[] magic = compression.magic;
+            if (header.length >= magic.length && Arrays.equals(header, 0, magic.length, magic, 0, magic.length)) {
+                return compression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * opens a resource's stream, decompressing it if its file name or, failing that, its leading
+     * bytes denote a codec. The leading bytes are only examined when the file name doesn't already
+     * settle it by naming a known data format.
+     *
+     * @param in the resource's raw stream
+     * @param filename the resource's file name, may be {@code null}
+     * @return the resource's content, decompressed if necessary
+     * @throws IOException if the stream can't be read or decompressed
+     */
+    static InputStream decompressIfNecessary(InputStream in, String filename) throws IOException {
+        UnmarshalCompression compression = fromFilename(filename);
+        if (compression != null) {
+            return compression.decompress(in);
+        }
+        if (UnmarshalFormat.fromLocation(filename) != null) {
+            return in;
+        }
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+        buffered.mark(MAX_MAGIC_LENGTH);
+        byte[] header = buffered.readNBytes(MAX_MAGIC_LENGTH);
+        buffered.reset();
+        compression = fromHeader(header);
+        return (compression != null) ? compression.decompress(buffered) : buffered;
+    }
+
+}
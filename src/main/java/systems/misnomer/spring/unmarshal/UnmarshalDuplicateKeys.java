@@ -0,0 +1,20 @@
+package systems.misnomer.spring.unmarshal;
+
+/**
+ * what happens when two elements of an {@link Unmarshal#indexBy() indexed} array have the same
+ * key. Ignored for multi-valued indexes, which keep every element.
+ *
+ * @see Unmarshal#duplicateKeys()
+ */
+public enum UnmarshalDuplicateKeys {
+
+    /** Fail with an {@link UnmarshalException} naming the key. */
+    FAIL,
+
+    /** Keep the element that appears first in the array. */
+    KEEP_FIRST,
+
+    /** Keep the element that appears last in the array, as a JSON object with repeated keys would. */
+    KEEP_LAST
+
+}
@@ -0,0 +1,185 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * a single {@link Unmarshal}-annotated field together with everything about it that can be worked
+ * out once per class: the annotation, the placeholder-resolved location, the decoded
+ * {@link Charset}, the data format, the field's {@link JavaType}, an {@link ObjectReader} bound
+ * to that type, for {@link Unmarshal#indexBy() indexed} fields, an {@link UnmarshalIndex} and,
+ * for locations that are patterns, an {@link UnmarshalPattern}.
+ * <p>
+ * Instances are immutable and safe to share between threads; <code>ObjectReader</code> is itself
+ * immutable and thread-safe.
+ */
+final class UnmarshalElement {
+
+    /**
+     * how the unmarshalled value is delivered to the field. For every kind other than
+     * {@link #VALUE} the element's {@link UnmarshalElement#getJavaType() JavaType} is the field's
+     * type argument rather than the field's own type.
+     */
+    enum Kind {
+
+        /** the field holds the unmarshalled value itself. */
+        VALUE,
+
+        /** the field is a {@link java.util.function.Supplier} that loads on first access. */
+        SUPPLIER,
+
+        /** the field is an {@link UnmarshalRef} that is reloaded when its file changes. */
+        REF,
+
+        /** the field is a {@link java.util.stream.Stream} over the elements of a top-level array. */
+        STREAM,
+
+        /** the field is a single-use {@link java.util.Iterator} over a top-level array. */
+        ITERATOR,
+
+        /** the field is an {@link Iterable} that re-reads the resource for every iterator. */
+        ITERABLE,
+
+        /** the field is a Reactor <code>Flux</code> over the elements of a top-level array. */
+        FLUX,
+
+        /** the field is an {@link UnmarshalOffHeapList} holding a top-level array outside the heap. */
+        OFF_HEAP,
+
+        /** the field is a {@link java.util.concurrent.CompletableFuture} completed by a background load. */
+        FUTURE,
+
+        /** the field is a Reactor <code>Mono</code> of a background load. */
+        MONO;
+
+        /**
+         * @return whether values are read element by element rather than bound as a whole
+         */
+        boolean isStreaming() {
+            return this == STREAM || this == ITERATOR || this == ITERABLE || this == FLUX;
+        }
+
+        /**
+         * @return whether the value is loaded on the executor while the field receives a handle to it
+         */
+        boolean isAsync() {
+            return this == FUTURE || this == MONO;
+        }
+
+    }
+
+    private final Field field;
+    private final Unmarshal annotation;
+    private final Kind kind;
+    private final String location;
+    private final Charset charset;
+    private final UnmarshalFormat format;
+    private final JavaType javaType;
+    private final ObjectReader reader;
+    private final JsonPointer pointer;
+    private final UnmarshalIndex index;
+    private final UnmarshalPattern pattern;
+
+    UnmarshalElement(Field field, Unmarshal annotation, Kind kind, String location, Charset charset,
+            UnmarshalFormat format, JavaType javaType, JsonPointer pointer, ObjectReader reader,
+            UnmarshalIndex index, UnmarshalPattern pattern) {
+        this.field = field;
+        this.annotation = annotation;
+        this.kind = kind;
+        this.location = location;
+        this.charset = charset;
+        this.format = format;
+        this.javaType = javaType;
+        this.pointer = pointer;
+        this.reader = reader;
+        this.index = index;
+        this.pattern = pattern;
+    }
+
+    Field getField() {
+        return field;
+    }
+
+    Unmarshal getAnnotation() {
+        return annotation;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the annotation's location with property placeholders already resolved
+     */
+    String getLocation() {
+        return location;
+    }
+
+    Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return the format the reader is bound to, or {@link UnmarshalFormat#AUTO} if the reader
+     *         detects it from the resource's leading bytes
+     */
+    UnmarshalFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the type the resource (or, for streaming kinds, each of its elements) is bound to
+     */
+    JavaType getJavaType() {
+        return javaType;
+    }
+
+    /**
+     * @return the part of the resource that is unmarshalled, or {@code null} for all of it
+     */
+    JsonPointer getPointer() {
+        return pointer;
+    }
+
+    /**
+     * @return a reader of the element's format and type, already restricted to the
+     *         {@link #getPointer() pointer}
+     */
+    ObjectReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return how the resource's elements are indexed into a map, or {@code null} if the resource
+     *         is bound as it is
+     */
+    UnmarshalIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return how the resources matched by the location are combined, or {@code null} if the
+     *         location isn't a pattern
+     */
+    UnmarshalPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @param reader a reader of the same format and type, such as one with extra attributes
+     * @return a copy of this element that reads with <code>reader</code>
+     */
+    UnmarshalElement withReader(ObjectReader reader) {
+        return new UnmarshalElement(field, annotation, kind, location, charset, format, javaType, pointer, reader,
+                index, pattern);
+    }
+
+    @Override
+    public String toString() {
+        return field.getDeclaringClass().getName() + "." + field.getName() + " <- " + location;
+    }
+
+}
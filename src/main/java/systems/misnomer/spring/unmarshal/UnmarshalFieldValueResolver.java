@@ -0,0 +1,80 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.lang.reflect.Field;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * resolver used by code generated ahead of time to inject {@link Unmarshal} fields. Each call
+ * names the field directly, so no classpath scan is needed at runtime; the value itself is
+ * produced by the context's {@link UnmarshalAnnotationPostProcessor}, exactly as it would be
+ * without AOT.
+ * <p>
+ * This class is public only so generated code in other packages can call it; it is not intended
+ * for direct use.
+ */
+public final class UnmarshalFieldValueResolver {
+
+    private UnmarshalFieldValueResolver() {
+    }
+
+    /**
+     * Resolves the value of a required field so generated code can assign it directly.
+     *
+     * @param registeredBean the bean being created
+     * @param declaringClass class declaring the field
+     * @param fieldName name of the annotated field
+     * @return the value to assign to the field
+     */
+    public static Object resolve(RegisteredBean registeredBean, Class<?> declaringClass, String fieldName) {
+        UnmarshalAnnotationPostProcessor postProcessor = getPostProcessor(registeredBean);
+        UnmarshalElement element = postProcessor.findElement(declaringClass, fieldName);
+        return postProcessor.resolveValue(registeredBean.getBeanName(), element);
+    }
+
+    /**
+     * Resolves the value of a field and sets it reflectively, leaving the field untouched if its
+     * resource is optional and missing. Used for fields generated code can't assign directly.
+     *
+     * @param registeredBean the bean being created
+     * @param instance the bean instance
+     * @param declaringClass class declaring the field
+     * @param fieldName name of the annotated field
+     */
+    public static void resolveAndSet(RegisteredBean registeredBean, Object instance, Class<?> declaringClass,
+            String fieldName) {
+        UnmarshalAnnotationPostProcessor postProcessor = getPostProcessor(registeredBean);
+        UnmarshalElement element = postProcessor.findElement(declaringClass, fieldName);
+        Object value = postProcessor.resolveValue(registeredBean.getBeanName(), element);
+        if (value != UnmarshalAnnotationPostProcessor.SKIP) {
+            Field field = element.getField();
+            ReflectionUtils.setField(field, instance, value);
+        }
+    }
+
+    /**
+     * Records that every field of the instance has been injected, so the post processor doesn't
+     * inject it again.
+     *
+     * @param <T> the bean's type
+     * @param registeredBean the bean being created
+     * @param instance the injected bean instance
+     * @return the instance
+     */
+    public static <T> T injected(RegisteredBean registeredBean, T instance) {
+        getPostProcessor(registeredBean).markInjectedAheadOfTime(registeredBean.getBeanName(), instance);
+        return instance;
+    }
+
+    private static UnmarshalAnnotationPostProcessor getPostProcessor(RegisteredBean registeredBean) {
+        UnmarshalAnnotationPostProcessor postProcessor = registeredBean.getBeanFactory()
+                .getBeanProvider(UnmarshalAnnotationPostProcessor.class).getIfUnique();
+        if (postProcessor == null) {
+            throw new UnmarshalException("No unique " + UnmarshalAnnotationPostProcessor.class.getSimpleName()
+                    + " available to inject @" + Unmarshal.class.getSimpleName() + " fields of bean '"
+                    + registeredBean.getBeanName() + "'");
+        }
+        return postProcessor;
+    }
+
+}
@@ -0,0 +1,101 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.List;
+import java.util.Locale;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * data formats an {@link Unmarshal} resource may be encoded in. Binary formats are backed by
+ * optional Jackson dataformat modules and can only be used when the corresponding
+ * <code>JsonFactory</code> is on the classpath.
+ *
+ * @see Unmarshal#format()
+ */
+public enum UnmarshalFormat {
+
+    /**
+     * Choose the format from the resource's file extension, falling back to sniffing its leading
+     * bytes among the formats whose modules are on the classpath. Resources that match nothing
+     * are read as JSON.
+     */
+    AUTO(null),
+
+    /** Textual JSON; always available. */
+    JSON(null, "json"),
+
+    /**
+     * <a href="https://github.com/ndjson/ndjson-spec">Newline-delimited JSON</a> (JSON Lines): one
+     * JSON value per line, bound as the elements of a collection or array field; always
+     * available. Never detected, only chosen by extension or declared.
+     */
+    NDJSON(null, "ndjson", "jsonl"),
+
+    /** <a href="https://github.com/FasterXML/smile-format-specification">Smile</a>, binary JSON. */
+    SMILE("com.fasterxml.jackson.dataformat.smile.SmileFactory", "smile", "sml"),
+
+    /** <a href="https://cbor.io">CBOR</a> (RFC 8949). */
+    CBOR("com.fasterxml.jackson.dataformat.cbor.CBORFactory", "cbor"),
+
+    /** <a href="https://msgpack.org">MessagePack</a>, via <code>org.msgpack:jackson-dataformat-msgpack</code>. */
+    MESSAGEPACK("org.msgpack.jackson.dataformat.MessagePackFactory", "msgpack", "mpk");
+
+    private final String factoryClassName;
+    private final List<String> extensions;
+
+    UnmarshalFormat(String factoryClassName, String... extensions) {
+        this.factoryClassName = factoryClassName;
+        this.extensions = List.of(extensions);
+    }
+
+    /**
+     * @return whether this is a concrete binary format backed by an optional Jackson module
+     */
+    boolean isBinary() {
+        return factoryClassName != null;
+    }
+
+    /**
+     * @param classLoader class loader to look the format's <code>JsonFactory</code> up with
+     * @return whether this format can be read with the given class loader
+     */
+    boolean isAvailable(ClassLoader classLoader) {
+        return this == JSON || this == NDJSON || (isBinary() && ClassUtils.isPresent(factoryClassName, classLoader));
+    }
+
+    /**
+     * @param classLoader class loader to load the format's <code>JsonFactory</code> with
+     * @return a new factory for this binary format
+     */
+    JsonFactory createFactory(ClassLoader classLoader) {
+        Class<?> factoryClass = ClassUtils.resolveClassName(factoryClassName, classLoader);
+        return (JsonFactory) BeanUtils.instantiateClass(factoryClass);
+    }
+
+    String getFactoryClassName() {
+        return factoryClassName;
+    }
+
+    /**
+     * @param location a resolved resource location
+     * @return the concrete format its file extension denotes, ignoring a trailing compression
+     *         extension, or {@code null} if it doesn't denote one
+     */
+    static UnmarshalFormat fromLocation(String location) {
+        String filename = UnmarshalCompression.stripExtension(StringUtils.getFilename(location));
+        String extension = StringUtils.getFilenameExtension(filename);
+        if (extension == null) {
+            return null;
+        }
+        extension = extension.toLowerCase(Locale.ROOT);
+        for (UnmarshalFormat format : values()) {
+            if (format.extensions.contains(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,184 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * binds the elements of a top-level array straight into a <code>Map</code> keyed by one of their
+ * properties, for {@link Unmarshal#indexBy()} fields, in a single pass and without an intermediate
+ * <code>List</code>.
+ * <p>
+ * Each element is buffered as tokens; the key is read from the buffer through a
+ * {@link JsonPointer} filter and bound to the map's key type, then the element is bound to the
+ * map's value type. When the value type is itself a <code>Collection</code>, the index is
+ * multi-valued: elements with the same key are collected in array order and
+ * {@link UnmarshalDuplicateKeys} doesn't apply.
+ * <p>
+ * Map and collection interfaces are implemented by insertion-ordered <code>LinkedHashMap</code>,
+ * <code>ArrayList</code> and <code>LinkedHashSet</code>, sorted ones by <code>TreeMap</code> and
+ * <code>TreeSet</code>; concrete classes are instantiated through their default constructor.
+ */
+final class UnmarshalIndex {
+
+    private final JsonPointer pointer;
+
+    private final UnmarshalDuplicateKeys duplicateKeys;
+
+    private final JavaType keyType;
+
+    /** the element type, which for a multi-valued index is the value collection's content type. */
+    private final JavaType elementType;
+
+    private final Supplier<Map<Object, Object>> mapFactory;
+
+    /** {@code null} unless the index is multi-valued. */
+    private final Supplier<Collection<Object>> collectionFactory;
+
+    private UnmarshalIndex(JsonPointer pointer, UnmarshalDuplicateKeys duplicateKeys, JavaType keyType,
+            JavaType elementType, Supplier<Map<Object, Object>> mapFactory,
+            Supplier<Collection<Object>> collectionFactory) {
+        this.pointer = pointer;
+        this.duplicateKeys = duplicateKeys;
+        this.keyType = keyType;
+        this.elementType = elementType;
+        this.mapFactory = mapFactory;
+        this.collectionFactory = collectionFactory;
+    }
+
+    /**
+     * @param indexBy a top-level property name, or a JSON pointer starting with <code>/</code>
+     * @param duplicateKeys what to do when keys repeat
+     * @param mapType the field's map type
+     * @return the index
+     * @throws IllegalArgumentException if <code>indexBy</code> isn't a valid pointer or
+     *         <code>mapType</code> isn't a map that can be instantiated
+     */
+    static UnmarshalIndex of(String indexBy, UnmarshalDuplicateKeys duplicateKeys, JavaType mapType) {
+        if (!mapType.isMapLikeType()) {
+            throw new IllegalArgumentException("must be declared as a Map");
+        }
+        JsonPointer pointer = indexBy.startsWith("/") ? JsonPointer.compile(indexBy)
+                : JsonPointer.compile("/" + indexBy.replace("~", "~0").replace("/", "~1"));
+        @SuppressWarnings("unchecked")
+        Supplier<Map<Object, Object>> mapFactory = (Supplier<Map<Object, Object>>) factory(mapType.getRawClass(),
+                LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class);
+        JavaType valueType = mapType.getContentType();
+        if (valueType.isCollectionLikeType()) {
+            @SuppressWarnings("unchecked")
+            Supplier<Collection<Object>> collectionFactory = (Supplier<Collection<Object>>) factory(
+                    valueType.getRawClass(), ArrayList.class, LinkedHashSet.class, TreeSet.class);
+            return new UnmarshalIndex(pointer, duplicateKeys, mapType.getKeyType(), valueType.getContentType(),
+                    mapFactory, collectionFactory);
+        }
+        return new UnmarshalIndex(pointer, duplicateKeys, mapType.getKeyType(), valueType, mapFactory, null);
+    }
+
+    /**
+     * picks the first default implementation assignable to <code>type</code>, or else
+     * <code>type</code> itself if it's a concrete class with a default constructor.
+     *
+     * @throws IllegalArgumentException if neither applies
+     */
+    static Supplier<?> factory(Class<?> type, Class<?>... defaults) {
+        for (Class<?> candidate : defaults) {
+            if (type.isAssignableFrom(candidate)) {
+                return () -> BeanUtils.instantiateClass(candidate);
+            }
+        }
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())
+                && ClassUtils.hasConstructor(type)) {
+            return () -> BeanUtils.instantiateClass(type);
+        }
+        throw new IllegalArgumentException("can't instantiate " + type.getName());
+    }
+
+    /**
+     * @param elements the array's elements as token buffers
+     * @param reader a reader of the resource's format, retargeted to the key and element types
+     * @return the index
+     * @throws IOException if an element can't be read or bound
+     * @throws UnmarshalException if an element has no key, or a key repeats and duplicates fail
+     */
+    Map<Object, Object> read(MappingIterator<TokenBuffer> elements, ObjectReader reader) throws IOException {
+        ObjectReader keyReader = reader.forType(keyType);
+        ObjectReader elementReader = reader.forType(elementType);
+        Map<Object, Object> index = mapFactory.get();
+        for (int i = 0; elements.hasNext(); i++) {
+            try (TokenBuffer element = elements.next()) {
+                Object key = readKey(element, keyReader);
+                if (key == null) {
+                    throw new UnmarshalException("Element " + i + " has no value at '" + pointer + "' to index by");
+                }
+                Object value;
+                try (JsonParser parser = element.asParser()) {
+                    value = elementReader.readValue(parser);
+                }
+                if (collectionFactory != null) {
+                    @SuppressWarnings("unchecked")
+                    Collection<Object> values =
+                            (Collection<Object>) index.computeIfAbsent(key, k -> collectionFactory.get());
+                    values.add(value);
+                } else if (index.containsKey(key)) {
+                    if (duplicateKeys == UnmarshalDuplicateKeys.FAIL) {
+                        throw new UnmarshalException("Duplicate key '" + key + "' at element " + i);
+                    }
+                    if (duplicateKeys == UnmarshalDuplicateKeys.KEEP_LAST) {
+                        index.put(key, value);
+                    }
+                } else {
+                    index.put(key, value);
+                }
+            }
+        }
+        return index;
+    }
+
+    private Object readKey(TokenBuffer element, ObjectReader keyReader) throws IOException {
+        try (JsonParser parser = new FilteringParserDelegate(element.asParser(), new JsonPointerBasedFilter(pointer),
+                TokenFilter.Inclusion.ONLY_INCLUDE_ALL, false)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            return keyReader.readValue(parser);
+        }
+    }
+
+    /**
+     * compares what an index is built by; the types and factories derive from the map type, which
+     * callers compare separately.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof UnmarshalIndex index && pointer.equals(index.pointer)
+                && duplicateKeys == index.duplicateKeys;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pointer, duplicateKeys);
+    }
+
+}
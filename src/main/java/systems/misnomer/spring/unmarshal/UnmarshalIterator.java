@@ -0,0 +1,74 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import com.fasterxml.jackson.databind.MappingIterator;
+
+/**
+ * {@link Iterator} over the elements of a resource, backed by a Jackson {@link MappingIterator}.
+ * Elements are bound one at a time as the iterator advances, and read or parse failures are
+ * reported as {@link UnmarshalException}s. The underlying stream is closed once the last element
+ * has been returned, when reading or binding an element fails, or earlier by {@link #close()}.
+ *
+ * @param <T> element type
+ */
+final class UnmarshalIterator<T> implements Iterator<T>, Closeable {
+
+    private final MappingIterator<T> delegate;
+    private final String description;
+
+    UnmarshalIterator(MappingIterator<T> delegate, String description) {
+        this.delegate = delegate;
+        this.description = description;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            boolean hasNext = delegate.hasNextValue();
+            if (!hasNext) {
+                delegate.close();
+            }
+            return hasNext;
+        } catch (IOException e) {
+            throw readFailed(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more elements in resource: " + description);
+        }
+        try {
+            return delegate.nextValue();
+        } catch (IOException e) {
+            throw readFailed(e);
+        }
+    }
+
+    /**
+     * closes the stream, which a caller abandoning a failed iterator would otherwise leak.
+     */
+    private UnmarshalException readFailed(IOException cause) {
+        UnmarshalException e = new UnmarshalException("Failed to read next element of resource: " + description, cause);
+        try {
+            delegate.close();
+        } catch (IOException closeFailure) {
+            e.addSuppressed(closeFailure);
+        }
+        return e;
+    }
+
+    @Override
+    public void close() {
+        try {
+            delegate.close();
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to close resource: " + description, e);
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * collects completed loads for metrics. Loads happen long before a metrics registry exists (the
+ * post processor is created before ordinary beans), so loads are buffered, up to a bound, and
+ * replayed to every subscriber. Once startup is complete and something has subscribed, buffering
+ * stops and later loads (of lazy fields, prototype beans or reloads) only go to subscribers.
+ * <p>
+ * This class has no Micrometer dependency; {@link UnmarshalMetrics} subscribes to it when Micrometer
+ * is on the classpath.
+ */
+final class UnmarshalLoadRecorder {
+
+    /** upper bound on buffered loads, in case singleton instantiation never completes. */
+    private static final int MAX_BUFFERED = 10_000;
+
+    /**
+     * a single completed load.
+     *
+     * @param location the resolved resource location
+     * @param type canonical name of the type the resource was bound to
+     * @param bytes the resource's length in bytes, or {@code -1} if unknown
+     * @param nanos how long reading and parsing took
+     * @param success whether the load succeeded
+     */
+    record Load(String location, String type, long bytes, long nanos, boolean success) {
+    }
+
+    private final List<Consumer<Load>> subscribers = new ArrayList<>();
+
+    private List<Load> buffer = new ArrayList<>();
+
+    private boolean startupComplete;
+
+    void record(Load load) {
+        List<Consumer<Load>> current;
+        synchronized (this) {
+            if (buffer != null && buffer.size() < MAX_BUFFERED) {
+                buffer.add(load);
+            }
+            // taken under the lock, so a concurrent subscriber sees each load exactly once
+            current = List.copyOf(subscribers);
+        }
+        current.forEach(subscriber -> subscriber.accept(load));
+    }
+
+    /**
+     * @param subscriber receives every buffered load now and every later load as it is recorded
+     */
+    void subscribe(Consumer<Load> subscriber) {
+        List<Load> buffered;
+        synchronized (this) {
+            subscribers.add(subscriber);
+            buffered = (buffer != null) ? List.copyOf(buffer) : List.of();
+            if (startupComplete) {
+                buffer = null;
+            }
+        }
+        buffered.forEach(subscriber);
+    }
+
+    /**
+     * marks the end of startup: the buffer is discarded now if anything has subscribed, or else
+     * after replaying it to the first subscriber, which may be a registry created late.
+     */
+    synchronized void startupComplete() {
+        startupComplete = true;
+        if (!subscribers.isEmpty()) {
+            buffer = null;
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package systems.misnomer.spring.unmarshal;
+
+/**
+ * how the resources matched by a {@link Unmarshal#location() location pattern} are combined into
+ * one field value. Resources are always combined in the order of their URLs, whatever order they
+ * were found or parsed in.
+ *
+ * @see Unmarshal#merge()
+ */
+public enum UnmarshalMerge {
+
+    /**
+     * Decide by the field's type: {@link #CONCATENATE} for collections, {@link #BY_FILENAME} for
+     * maps with <code>String</code> keys and {@link #MERGE} for anything else.
+     */
+    AUTO,
+
+    /** Each resource holds an array; the field receives the elements of all of them, in order. */
+    CONCATENATE,
+
+    /**
+     * Each resource holds one value of the map's value type; the field receives a map from each
+     * resource's filename to its value. Two resources with the same filename fail the load.
+     */
+    BY_FILENAME,
+
+    /**
+     * Each resource holds a value of the field's type; each later resource is bound onto the value
+     * read so far, so its properties override those of earlier ones. Nested values are replaced
+     * rather than merged unless Jackson is told otherwise, for example with
+     * <code>@JsonMerge</code>.
+     */
+    MERGE
+
+}
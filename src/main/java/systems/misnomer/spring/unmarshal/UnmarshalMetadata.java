@@ -0,0 +1,43 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.List;
+
+/**
+ * per-class record of the {@link Unmarshal} injection points discovered on a bean class, in the
+ * spirit of Spring's <code>InjectionMetadata</code>. Instances are computed once per class by
+ * {@link UnmarshalAnnotationPostProcessor} and reused for every bean of that class, so repeated
+ * instantiations (prototype or request scoped beans, for example) never rescan fields.
+ * <p>
+ * Classes without annotated fields share the {@link #EMPTY} instance, giving a cheap negative
+ * answer on every lookup after the first.
+ */
+final class UnmarshalMetadata {
+
+    /** shared metadata for classes that have no {@link Unmarshal} fields. */
+    static final UnmarshalMetadata EMPTY = new UnmarshalMetadata(Object.class, List.of());
+
+    private final Class<?> targetClass;
+    private final List<UnmarshalElement> elements;
+
+    private UnmarshalMetadata(Class<?> targetClass, List<UnmarshalElement> elements) {
+        this.targetClass = targetClass;
+        this.elements = elements;
+    }
+
+    static UnmarshalMetadata forElements(Class<?> targetClass, List<UnmarshalElement> elements) {
+        return elements.isEmpty() ? EMPTY : new UnmarshalMetadata(targetClass, List.copyOf(elements));
+    }
+
+    Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    List<UnmarshalElement> getElements() {
+        return elements;
+    }
+
+    boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
+}
@@ -0,0 +1,43 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * {@link MeterBinder} publishing the loads recorded by an {@link UnmarshalLoadRecorder}, including
+ * those that happened before the registry existed:
+ * <ul>
+ * <li><code>unmarshal.load</code>, a timer of reading and parsing each resource;</li>
+ * <li><code>unmarshal.load.bytes</code>, a counter of the bytes read.</li>
+ * </ul>
+ * Both are tagged with the resource <code>location</code>, the target <code>type</code> and the
+ * <code>outcome</code> (<code>success</code> or <code>failure</code>).
+ */
+final class UnmarshalMetrics implements MeterBinder {
+
+    private final UnmarshalLoadRecorder recorder;
+
+    UnmarshalMetrics(UnmarshalLoadRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        recorder.subscribe(load -> {
+            Tags tags = Tags.of("location", load.location(), "type", load.type(), "outcome",
+                    load.success() ? "success" : "failure");
+            Timer.builder("unmarshal.load").description("Time taken to read and parse an @Unmarshal resource")
+                    .tags(tags).register(registry).record(load.nanos(), TimeUnit.NANOSECONDS);
+            if (load.bytes() >= 0) {
+                Counter.builder("unmarshal.load.bytes").description("Bytes read from @Unmarshal resources")
+                        .baseUnit(BaseUnits.BYTES).tags(tags).register(registry).increment(load.bytes());
+            }
+        });
+    }
+
+}
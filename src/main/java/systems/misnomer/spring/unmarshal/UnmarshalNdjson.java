@@ -0,0 +1,184 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * reads {@link UnmarshalFormat#NDJSON newline-delimited JSON} into collections and arrays.
+ * <p>
+ * A UTF-8 file is split into chunks that end at line breaks, a few per core, and each chunk is
+ * memory-mapped and parsed on its own on the common <code>ForkJoinPool</code>, with the calling
+ * thread taking part. Chunks are concatenated in file order, so the values are in the order of
+ * their lines. Each chunk is mapped separately, so files larger than a single mapping (2GB) are
+ * read too. Small files are parsed in a single chunk on the calling thread.
+ * <p>
+ * Splitting on line feed bytes is only safe in UTF-8, where they can't occur inside another
+ * character; other content is parsed sequentially by the caller.
+ */
+final class UnmarshalNdjson {
+
+    /** the smallest chunk worth parsing on its own. */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    /** the largest chunk mapped at once, keeping mappings well below the 2GB limit. */
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+
+    /** chunks per core, so cores that finish early can take on more. */
+    private static final int CHUNKS_PER_CORE = 4;
+
+    private UnmarshalNdjson() {
+    }
+
+    /**
+     * @param type a field's type
+     * @return whether lines can be collected into a value of the type
+     */
+    static boolean isCollectable(JavaType type) {
+        if (type.isArrayType()) {
+            return true;
+        }
+        try {
+            return type.isCollectionLikeType() && collectionFactory(type) != null;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param values the values of every line, in order
+     * @param type a {@link #isCollectable(JavaType) collectable} type
+     * @return the values as a new collection or array of the type
+     */
+    static Object collect(List<Object> values, JavaType type) {
+        if (type.isArrayType()) {
+            Object array = Array.newInstance(type.getContentType().getRawClass(), values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, values.get(i));
+            }
+            return array;
+        }
+        @SuppressWarnings("unchecked")
+        Collection<Object> collection = (Collection<Object>) collectionFactory(type).get();
+        collection.addAll(values);
+        return collection;
+    }
+
+    private static Supplier<?> collectionFactory(JavaType type) {
+        return UnmarshalIndex.factory(type.getRawClass(), ArrayList.class, LinkedHashSet.class, TreeSet.class);
+    }
+
+    /**
+     * @param reader reader of a single line's value
+     * @param path an uncompressed UTF-8 file
+     * @param length the file's length
+     * @return the values of every line, in order
+     * @throws IOException if the file can't be read or a line can't be parsed
+     */
+    static List<Object> read(ObjectReader reader, Path path, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = boundaries(channel, length, chunkCount(length));
+            if (bounds.length == 2) {
+                return readChunk(reader, channel, 0, length);
+            }
+            List<List<Object>> chunks = IntStream.range(0, bounds.length - 1).parallel().mapToObj(i -> {
+                try {
+                    return readChunk(reader, channel, bounds[i], bounds[i + 1]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toList();
+            List<Object> values = new ArrayList<>(chunks.stream().mapToInt(List::size).sum());
+            chunks.forEach(values::addAll);
+            return values;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static int chunkCount(long length) {
+        long byCores = (long) ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_CORE;
+        long bySize = (length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE;
+        return (int) Math.max(1, Math.max(Math.min(length / MIN_CHUNK_SIZE, byCores), bySize));
+    }
+
+    /**
+     * @return the offsets chunks start at, each just after a line feed, followed by the length
+     */
+    private static long[] boundaries(FileChannel channel, long length, int chunkCount) throws IOException {
+        long[] bounds = new long[chunkCount + 1];
+        int count = 1;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        for (int i = 1; i < chunkCount; i++) {
+            long bound = lineStart(channel, Math.max(length / chunkCount * i, bounds[count - 1] + 1), length, buffer);
+            if (bound >= length) {
+                break;
+            }
+            bounds[count++] = bound;
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * @return the offset of the first line starting at or after <code>position</code>, or the
+     *         length if none does
+     */
+    private static long lineStart(FileChannel channel, long position, long length, ByteBuffer buffer)
+            throws IOException {
+        long offset = position - 1;
+        while (offset < length) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return length;
+    }
+
+    /**
+     * parses a chunk's lines from a parser of its own, as {@link ObjectReader#readValues(JsonParser)}
+     * doesn't unwrap a leading array the way the stream-based variants do, so lines holding arrays
+     * stay values of their own.
+     */
+    private static List<Object> readChunk(ObjectReader reader, FileChannel channel, long start, long end)
+            throws IOException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("Line at byte " + start + " is longer than 2GB");
+        }
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        try (JsonParser parser = reader.createParser(new ByteBufferBackedInputStream(chunk));
+                MappingIterator<Object> values = reader.readValues(parser)) {
+            return values.readAll();
+        } catch (IOException e) {
+            throw new IOException("Failed to parse lines between bytes " + start + " and " + end, e);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * read-only list whose elements live outside the Java heap and are decoded on access.
+ * <p>
+ * Declare an {@link Unmarshal} field as <code>UnmarshalOffHeapList&lt;T&gt;</code> to keep a large
+ * top-level array out of the heap. The elements are read one at a time and each is re-encoded
+ * (as Smile when it is on the classpath, otherwise as JSON) into a temporary file that is then
+ * memory-mapped and deleted. What stays on the heap is a single <code>long[]</code> of record
+ * offsets, so the garbage collector never traces the elements themselves, and the operating
+ * system pages the records in and out as they're used.
+ * <p>
+ * Every {@link #get(int)} binds a new instance of {@code T} from its record, which is cheap for
+ * small records but not free: copy values that are read repeatedly in a hot loop. Every element is
+ * bound once from its tokens while the list is written, so a resource that doesn't match
+ * {@code T} fails when the bean is created, not on first access. Only one element is held on the
+ * heap at a time: its tokens are encoded straight into the file.
+ * <p>
+ * Mapped memory is released when the list is garbage collected.
+ *
+ * @param <T> element type
+ * @see Unmarshal
+ */
+public final class UnmarshalOffHeapList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnmarshalOffHeapList.class);
+
+    /** upper bound on the size of one mapped region, well below the 2GB limit of a buffer. */
+    private static final long MAX_REGION_SIZE = 1L << 30;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ObjectReader recordReader;
+
+    /** start of each record in the file, followed by the file's length. */
+    private final long[] offsets;
+
+    private final long[] regionStarts;
+
+    private final ByteBuffer[] regions;
+
+    private UnmarshalOffHeapList(ObjectReader recordReader, long[] offsets, long[] regionStarts,
+            ByteBuffer[] regions) {
+        this.recordReader = recordReader;
+        this.offsets = offsets;
+        this.regionStarts = regionStarts;
+        this.regions = regions;
+    }
+
+    /**
+     * decodes the element at <code>index</code>.
+     *
+     * @param index element index
+     * @return a newly bound element
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws UnmarshalException if the record can't be decoded
+     */
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size());
+        long start = offsets[index];
+        int region = Arrays.binarySearch(regionStarts, start);
+        if (region < 0) {
+            region = -region - 2;
+        }
+        byte[] record = new byte[(int) (offsets[index + 1] - start)];
+        regions[region].get((int) (start - regionStarts[region]), record);
+        try {
+            return recordReader.readValue(record);
+        } catch (IOException e) {
+            throw new UnmarshalException("Failed to decode off-heap element " + index, e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return total size of the encoded records, in bytes
+     */
+    public long getStoredBytes() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * writes every element of a top-level array to a new off-heap list.
+     *
+     * @param <T> element type
+     * @param elements the array's elements as token buffers, closed once consumed
+     * @param recordFactory factory records are encoded with
+     * @param recordReader reads records of <code>recordFactory</code>'s format as {@code T}
+     * @param directory directory the backing file is created in
+     * @return the list
+     * @throws IOException if an element can't be read, encoded or bound, or the file can't be
+     *         written or mapped
+     */
+    static <T> UnmarshalOffHeapList<T> write(Iterator<TokenBuffer> elements, JsonFactory recordFactory,
+            ObjectReader recordReader, Path directory) throws IOException {
+        return write(elements, recordFactory, recordReader, directory, MAX_REGION_SIZE);
+    }
+
+    /**
+     * as {@link #write(Iterator, JsonFactory, ObjectReader, Path)}, mapping the file in regions of
+     * at most <code>maxRegionSize</code> bytes, each holding whole records.
+     */
+    static <T> UnmarshalOffHeapList<T> write(Iterator<TokenBuffer> elements, JsonFactory recordFactory,
+            ObjectReader recordReader, Path directory, long maxRegionSize) throws IOException {
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, "unmarshal-", ".records");
+        try {
+            long[] offsets = new long[INITIAL_CAPACITY];
+            List<Long> regionStarts = new ArrayList<>();
+            regionStarts.add(0L);
+            int count = 0;
+            long length = 0;
+            try (CountingOutputStream out = new CountingOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))) {
+                while (elements.hasNext()) {
+                    try (TokenBuffer element = elements.next()) {
+                        // fail now, rather than on first access, if the element doesn't bind
+                        recordReader.readValue(element.asParser());
+                        try (JsonGenerator generator = recordFactory.createGenerator(out)
+                                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                            element.serialize(generator);
+                        }
+                    }
+                    long size = out.getCount() - length;
+                    if (size > maxRegionSize) {
+                        throw new IOException("Element " + count + " is too large to store off-heap");
+                    }
+                    if (out.getCount() - regionStarts.get(regionStarts.size() - 1) > maxRegionSize) {
+                        regionStarts.add(length);
+                    }
+                    if (count + 1 == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    }
+                    offsets[count++] = length;
+                    length = out.getCount();
+                }
+            }
+            offsets[count] = length;
+            long[] starts = regionStarts.stream().mapToLong(Long::longValue).toArray();
+            ByteBuffer[] regions = new ByteBuffer[starts.length];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int i = 0; i < starts.length; i++) {
+                    long end = (i + 1 < starts.length) ? starts[i + 1] : length;
+                    regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, starts[i], end - starts[i]);
+                }
+            }
+            logger.debug("Stored {} elements ({} bytes) off-heap in {} mapped region(s)", count, length,
+                    regions.length);
+            return new UnmarshalOffHeapList<>(recordReader, Arrays.copyOf(offsets, count + 1), starts, regions);
+        } finally {
+            delete(file);
+        }
+    }
+
+    /**
+     * deletes the backing file, which mappings outlive on POSIX systems. Windows refuses to delete
+     * a mapped file, so there it's removed when the JVM exits instead.
+     */
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * counts the bytes written through it, so records can be encoded straight into the file.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+}
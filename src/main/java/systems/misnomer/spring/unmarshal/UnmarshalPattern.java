@@ -0,0 +1,269 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * reads every resource matched by a {@link Unmarshal#location() location pattern} and combines
+ * them into one value, as chosen by {@link Unmarshal#merge()}.
+ * <p>
+ * The matched resources are sorted by URL, then parsed in parallel on the common
+ * <code>ForkJoinPool</code>, whose parallelism matches the number of cores, with the calling
+ * thread taking part. Results are combined in sorted order, so the value doesn't depend on the
+ * order resources were found or finished parsing in. For {@link UnmarshalMerge#MERGE} each
+ * resource is parsed in parallel into a token buffer, and the buffers are then bound one after
+ * the other.
+ * <p>
+ * The matched resources are represented by a single {@link Matches} resource, so a pattern is
+ * shared, prefetched and instrumented like any other location.
+ */
+final class UnmarshalPattern {
+
+    private static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    /**
+     * reads one resource; {@link UnmarshalResourceReader#read} with the field's charset applied.
+     */
+    @FunctionalInterface
+    interface PartReader {
+
+        Object read(ObjectReader reader, Resource resource) throws IOException;
+
+    }
+
+    private final UnmarshalMerge merge;
+
+    /** the type each resource is bound to. */
+    private final JavaType partType;
+
+    private final Supplier<?> factory;
+
+    private UnmarshalPattern(UnmarshalMerge merge, JavaType partType, Supplier<?> factory) {
+        this.merge = merge;
+        this.partType = partType;
+        this.factory = factory;
+    }
+
+    /**
+     * @param location a resolved location
+     * @return whether the location has a <code>classpath*:</code> prefix or a wildcard in its path.
+     *         URLs of <code>http:</code> and <code>https:</code> locations are never patterns,
+     *         since <code>?</code> starts their query.
+     */
+    static boolean isPattern(String location) {
+        if (location.startsWith(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX)) {
+            return true;
+        }
+        if (location.startsWith("http:") || location.startsWith("https:")) {
+            return false;
+        }
+        return PATH_MATCHER.isPattern(location.substring(location.indexOf(':') + 1));
+    }
+
+    /**
+     * @param merge the requested strategy
+     * @param type the field's type
+     * @return the pattern
+     * @throws IllegalArgumentException if the strategy doesn't suit the type
+     */
+    static UnmarshalPattern of(UnmarshalMerge merge, JavaType type) {
+        if (merge == UnmarshalMerge.AUTO) {
+            merge = type.isCollectionLikeType() ? UnmarshalMerge.CONCATENATE
+                    : (type.isMapLikeType() && type.getKeyType().hasRawClass(String.class)) ? UnmarshalMerge.BY_FILENAME
+                            : UnmarshalMerge.MERGE;
+        }
+        return switch (merge) {
+            case CONCATENATE -> {
+                if (!type.isCollectionLikeType()) {
+                    throw new IllegalArgumentException("must be declared as a Collection to concatenate resources");
+                }
+                yield new UnmarshalPattern(merge, type, UnmarshalIndex.factory(type.getRawClass(), ArrayList.class,
+                        LinkedHashSet.class, TreeSet.class));
+            }
+            case BY_FILENAME -> {
+                if (!type.isMapLikeType() || !type.getKeyType().getRawClass().isAssignableFrom(String.class)) {
+                    throw new IllegalArgumentException("must be declared as a Map with String keys to key resources"
+                            + " by filename");
+                }
+                yield new UnmarshalPattern(merge, type.getContentType(), UnmarshalIndex.factory(type.getRawClass(),
+                        LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class));
+            }
+            default -> new UnmarshalPattern(UnmarshalMerge.MERGE, type, null);
+        };
+    }
+
+    /**
+     * @param resolver resolver to find the matching resources with
+     * @param location a location {@link #isPattern(String) pattern}
+     * @return the matching resources, which {@link Matches#exists() exist} only if there's at
+     *         least one
+     * @throws IOException if the pattern can't be resolved
+     */
+    static Matches resolve(ResourcePatternResolver resolver, String location) throws IOException {
+        List<Resource> resources = new ArrayList<>(Arrays.asList(resolver.getResources(location)));
+        resources.sort(Comparator.comparing(UnmarshalPattern::sortKey));
+        return new Matches(location, resources);
+    }
+
+    private static String sortKey(Resource resource) {
+        try {
+            return resource.getURL().toString();
+        } catch (IOException e) {
+            return resource.getDescription();
+        }
+    }
+
+    /**
+     * @param matches the resources to read
+     * @param reader reader of the resources' format, for the field's type
+     * @param partReader reads one resource
+     * @return the combined value
+     * @throws UnmarshalException if a resource can't be read, or two resources have the same
+     *         filename
+     */
+    Object read(Matches matches, ObjectReader reader, PartReader partReader) {
+        if (merge == UnmarshalMerge.MERGE) {
+            List<Object> buffers = readAll(matches, reader.forType(TokenBuffer.class), partReader);
+            // binding a parser directly ignores the reader's pointer, which the buffers already applied
+            Object value = null;
+            for (int i = 0; i < buffers.size(); i++) {
+                try (JsonParser parser = ((TokenBuffer) buffers.get(i)).asParser()) {
+                    value = (value == null) ? reader.readValue(parser)
+                            : reader.withValueToUpdate(value).readValue(parser);
+                } catch (IOException e) {
+                    throw new UnmarshalException("Failed to merge resource: "
+                            + matches.getResources().get(i).getDescription(), e);
+                }
+            }
+            return value;
+        }
+        List<Object> parts = readAll(matches, reader.forType(partType), partReader);
+        if (merge == UnmarshalMerge.CONCATENATE) {
+            @SuppressWarnings("unchecked")
+            Collection<Object> values = (Collection<Object>) factory.get();
+            parts.forEach(part -> values.addAll((Collection<?>) part));
+            return values;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> values = (Map<String, Object>) factory.get();
+        for (int i = 0; i < parts.size(); i++) {
+            Resource resource = matches.getResources().get(i);
+            if (values.putIfAbsent(resource.getFilename(), parts.get(i)) != null) {
+                throw new UnmarshalException("More than one resource of pattern '" + matches.getLocation()
+                        + "' is named '" + resource.getFilename() + "'");
+            }
+        }
+        return values;
+    }
+
+    private static List<Object> readAll(Matches matches, ObjectReader reader, PartReader partReader) {
+        return matches.getResources().parallelStream().map(resource -> {
+            try {
+                return partReader.read(reader, resource);
+            } catch (IOException e) {
+                throw new UnmarshalException("Failed to read InputStream for resource: " + resource.getDescription(),
+                        e);
+            }
+        }).toList();
+    }
+
+    /**
+     * compares how resources are combined; the types and factories derive from the field's type,
+     * which callers compare separately.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof UnmarshalPattern pattern && merge == pattern.merge;
+    }
+
+    @Override
+    public int hashCode() {
+        return merge.hashCode();
+    }
+
+    /**
+     * the resources a pattern matched, in URL order. It exists if there's at least one; it can't be
+     * opened as a single stream.
+     */
+    static final class Matches extends AbstractResource {
+
+        private final String location;
+
+        private final List<Resource> resources;
+
+        Matches(String location, List<Resource> resources) {
+            this.location = location;
+            this.resources = List.copyOf(resources);
+        }
+
+        String getLocation() {
+            return location;
+        }
+
+        List<Resource> getResources() {
+            return resources;
+        }
+
+        @Override
+        public boolean exists() {
+            return !resources.isEmpty();
+        }
+
+        /**
+         * @return the total length of the matched resources
+         */
+        @Override
+        public long contentLength() throws IOException {
+            long length = 0;
+            for (Resource resource : resources) {
+                length += resource.contentLength();
+            }
+            return length;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            throw new FileNotFoundException(getDescription() + " can't be opened as a single stream");
+        }
+
+        @Override
+        public String getDescription() {
+            return "pattern [" + location + "] matching " + resources.size() + " resource(s)";
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Matches matches && location.equals(matches.location)
+                    && resources.equals(matches.resources);
+        }
+
+        @Override
+        public int hashCode() {
+            return location.hashCode();
+        }
+
+    }
+
+}
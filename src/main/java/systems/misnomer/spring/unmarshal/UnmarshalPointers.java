@@ -0,0 +1,123 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * extracts several {@link Unmarshal#pointer() pointed-to} subtrees of one document in a single
+ * pass, so fields that each need a different branch of the same resource share one parse.
+ * <p>
+ * Extraction runs the parser through a {@link FilteringParserDelegate} whose filter follows every
+ * pointer at once. Branches that no pointer leads into are skipped at token level, without being
+ * buffered or bound, and parsing stops as soon as every pointer has been found. Each matched
+ * subtree is buffered as tokens, to be bound to its field's type afterwards.
+ */
+final class UnmarshalPointers {
+
+    private UnmarshalPointers() {
+    }
+
+    /**
+     * @param parser parser positioned before the document
+     * @param pointers pointers to extract
+     * @return a buffer for each pointer found in the document. A pointer is missing if nothing
+     *         exists at its location or if it lies inside another pointer's subtree.
+     * @throws IOException if the document can't be parsed
+     */
+    static Map<JsonPointer, TokenBuffer> extract(JsonParser parser, Collection<JsonPointer> pointers)
+            throws IOException {
+        Deque<JsonPointer> matches = new ArrayDeque<>();
+        List<Path> paths = new ArrayList<>();
+        for (JsonPointer pointer : pointers) {
+            paths.add(new Path(pointer, pointer));
+        }
+        Map<JsonPointer, TokenBuffer> subtrees = new HashMap<>();
+        try (JsonParser filtered = new FilteringParserDelegate(parser, new MultiPointerFilter(paths, matches),
+                TokenFilter.Inclusion.ONLY_INCLUDE_ALL, true)) {
+            while (subtrees.size() < pointers.size() && filtered.nextToken() != null) {
+                JsonPointer pointer = matches.poll();
+                TokenBuffer subtree = new TokenBuffer(filtered);
+                subtree.copyCurrentStructure(filtered);
+                if (pointer != null) {
+                    subtrees.putIfAbsent(pointer, subtree);
+                }
+            }
+        }
+        return subtrees;
+    }
+
+    /**
+     * a pointer and how much of it is left to match below the filter's position.
+     */
+    private record Path(JsonPointer pointer, JsonPointer remaining) {
+    }
+
+    /**
+     * follows a set of pointers down the document. A property or element that completes a pointer
+     * is included whole, and that pointer is queued so the caller can tell which subtree it
+     * receives; one that continues a pointer is descended into; anything else is skipped.
+     */
+    private static final class MultiPointerFilter extends TokenFilter {
+
+        private final List<Path> paths;
+
+        private final Deque<JsonPointer> matches;
+
+        MultiPointerFilter(List<Path> paths, Deque<JsonPointer> matches) {
+            this.paths = paths;
+            this.matches = matches;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            List<Path> next = new ArrayList<>();
+            for (Path path : paths) {
+                JsonPointer remaining = path.remaining().matchProperty(name);
+                if (remaining != null) {
+                    next.add(new Path(path.pointer(), remaining));
+                }
+            }
+            return descend(next);
+        }
+
+        @Override
+        public TokenFilter includeElement(int index) {
+            List<Path> next = new ArrayList<>();
+            for (Path path : paths) {
+                JsonPointer remaining = path.remaining().matchElement(index);
+                if (remaining != null) {
+                    next.add(new Path(path.pointer(), remaining));
+                }
+            }
+            return descend(next);
+        }
+
+        private TokenFilter descend(List<Path> next) {
+            for (Path path : next) {
+                if (path.remaining().matches()) {
+                    matches.add(path.pointer());
+                    return TokenFilter.INCLUDE_ALL;
+                }
+            }
+            return next.isEmpty() ? null : new MultiPointerFilter(next, matches);
+        }
+
+        @Override
+        protected boolean _includeScalar() {
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,572 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * configuration properties, bound from the <code>unmarshal.*</code> namespace, that tune how
+ * {@link UnmarshalAnnotationPostProcessor} loads resources. Every property has a default matching
+ * the library's out-of-the-box behavior, so none of them need to be set.
+ *
+ * @see UnmarshalAnnotationAutoConfiguration
+ */
+@ConfigurationProperties(prefix = UnmarshalProperties.PREFIX)
+public class UnmarshalProperties {
+
+    /** Prefix under which these properties are bound. */
+    public static final String PREFIX = "unmarshal";
+
+    /**
+     * Whether every {@link Unmarshal} field shares one deserialized instance per resolved location,
+     * charset and target type, as if each field declared {@code shared = true}.
+     */
+    private boolean shared = false;
+
+    private final Prefetch prefetch = new Prefetch();
+
+    private final Task task = new Task();
+
+    private final Read read = new Read();
+
+    private final Snapshot snapshot = new Snapshot();
+
+    private final Reload reload = new Reload();
+
+    private final OffHeap offHeap = new OffHeap();
+
+    private final Remote remote = new Remote();
+
+    private final Canonicalize canonicalize = new Canonicalize();
+
+    private final TokenCache tokenCache = new TokenCache();
+
+    private final Replay replay = new Replay();
+
+    /** Default constructor; all properties start at their defaults. */
+    public UnmarshalProperties() {
+    }
+
+    /**
+     * @return whether loads are shared context-wide regardless of {@link Unmarshal#shared()}
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * @param shared whether loads are shared context-wide regardless of {@link Unmarshal#shared()}
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * @return properties controlling startup prefetching
+     */
+    public Prefetch getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * @return properties controlling the executor used for background loads
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * @return properties controlling how resource contents are read
+     */
+    public Read getRead() {
+        return read;
+    }
+
+    /**
+     * @return properties controlling the on-disk snapshot cache
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return properties controlling reloads of {@link UnmarshalRef} fields
+     */
+    public Reload getReload() {
+        return reload;
+    }
+
+    /**
+     * @return properties controlling {@link UnmarshalOffHeapList} fields
+     */
+    public OffHeap getOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return properties controlling how <code>http:</code> and <code>https:</code> resources are
+     *         fetched
+     */
+    public Remote getRemote() {
+        return remote;
+    }
+
+    /**
+     * @return properties controlling {@link Unmarshal#canonicalize() canonicalized} fields
+     */
+    public Canonicalize getCanonicalize() {
+        return canonicalize;
+    }
+
+    /**
+     * @return properties controlling the JVM-wide cache of parsed resource contents
+     */
+    public TokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    /**
+     * @return properties controlling how fields of prototype and other scoped beans are loaded
+     */
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * properties controlling the prefetch phase, which starts loading the resources of every
+     * eagerly-created singleton as soon as the post processor is registered.
+     */
+    public static class Prefetch {
+
+        /**
+         * Whether resources for singleton beans are loaded concurrently ahead of injection.
+         */
+        private boolean enabled = false;
+
+        /** Default constructor; prefetching starts disabled. */
+        public Prefetch() {
+        }
+
+        /**
+         * @return whether resources are prefetched during startup
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled whether resources are prefetched during startup
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+    }
+
+    /**
+     * properties for the executor that runs background loads, used when no executor bean named
+     * {@value UnmarshalAnnotationAutoConfiguration#UNMARSHAL_ANNOTATION_TASK_EXECUTOR} is defined.
+     */
+    public static class Task {
+
+        /**
+         * Maximum number of loads run at once; defaults to the number of available processors.
+         */
+        private Integer concurrencyLimit;
+
+        /** Default constructor; the limit starts unset. */
+        public Task() {
+        }
+
+        /**
+         * @return maximum number of concurrent loads, or {@code null} for the processor count
+         */
+        public Integer getConcurrencyLimit() {
+            return concurrencyLimit;
+        }
+
+        /**
+         * @param concurrencyLimit maximum number of concurrent loads
+         */
+        public void setConcurrencyLimit(Integer concurrencyLimit) {
+            this.concurrencyLimit = concurrencyLimit;
+        }
+
+    }
+
+    /**
+     * properties controlling how resource contents are read before being parsed.
+     */
+    public static class Read {
+
+        /**
+         * Size at or above which file resources are memory-mapped rather than read into a heap
+         * array.
+         */
+        private DataSize mappingThreshold = DataSize.ofMegabytes(16);
+
+        /** Default constructor; the threshold starts at 16MB. */
+        public Read() {
+        }
+
+        /**
+         * @return size at or above which file resources are memory-mapped
+         */
+        public DataSize getMappingThreshold() {
+            return mappingThreshold;
+        }
+
+        /**
+         * @param mappingThreshold size at or above which file resources are memory-mapped
+         */
+        public void setMappingThreshold(DataSize mappingThreshold) {
+            this.mappingThreshold = mappingThreshold;
+        }
+
+    }
+
+    /**
+     * properties controlling the on-disk cache of JSON resources transcoded to Smile, which lets
+     * later startups with identical resource content skip JSON tokenizing. Requires
+     * <code>jackson-dataformat-smile</code> on the classpath.
+     */
+    public static class Snapshot {
+
+        /**
+         * Whether JSON resources are read through the snapshot cache.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory snapshots are stored in; defaults to <code>unmarshal-snapshots</code> under
+         * the JVM's temporary directory.
+         */
+        private Path directory;
+
+        /** Default constructor; snapshots start disabled. */
+        public Snapshot() {
+        }
+
+        /**
+         * @return whether JSON resources are read through the snapshot cache
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled whether JSON resources are read through the snapshot cache
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return directory snapshots are stored in, or {@code null} for the default
+         */
+        public Path getDirectory() {
+            return directory;
+        }
+
+        /**
+         * @param directory directory snapshots are stored in
+         */
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+    }
+
+    /**
+     * properties controlling how {@link UnmarshalRef} fields are reloaded when their files change.
+     */
+    public static class Reload {
+
+        /**
+         * How long a watched directory must be quiet before changed files are re-read.
+         */
+        private Duration debounce = Duration.ofMillis(250);
+
+        /** Default constructor; the debounce interval starts at 250ms. */
+        public Reload() {
+        }
+
+        /**
+         * @return how long a watched directory must be quiet before changed files are re-read
+         */
+        public Duration getDebounce() {
+            return debounce;
+        }
+
+        /**
+         * @param debounce how long a watched directory must be quiet before changed files are
+         *        re-read
+         */
+        public void setDebounce(Duration debounce) {
+            this.debounce = debounce;
+        }
+
+    }
+
+    /**
+     * properties controlling where {@link UnmarshalOffHeapList} fields store their elements.
+     */
+    public static class OffHeap {
+
+        /**
+         * Directory the memory-mapped files backing off-heap fields are created in; defaults to
+         * <code>unmarshal-off-heap</code> under the JVM's temporary directory. Files are deleted
+         * as soon as they're mapped, or on exit where mapped files can't be deleted.
+         */
+        private Path directory;
+
+        /** Default constructor; files go to the default directory. */
+        public OffHeap() {
+        }
+
+        /**
+         * @return directory backing files are created in, or {@code null} for the default
+         */
+        public Path getDirectory() {
+            return directory;
+        }
+
+        /**
+         * @param directory directory backing files are created in
+         */
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+    }
+
+    /**
+     * properties controlling how <code>http:</code> and <code>https:</code> resources are fetched
+     * and cached on disk.
+     */
+    public static class Remote {
+
+        /**
+         * Whether remote resources are fetched with timeouts and cached on disk; when disabled they
+         * are read through their URL like any other resource.
+         */
+        private boolean enabled = true;
+
+        /**
+         * How long to wait for a connection to be established.
+         */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * How long to wait for a response, from sending the request to receiving the whole body.
+         */
+        private Duration readTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Directory fetched resources are cached in; defaults to <code>unmarshal-remote</code>
+         * under the JVM's temporary directory.
+         */
+        private Path cacheDirectory;
+
+        /** Default constructor; remote fetching starts enabled with 5s and 30s timeouts. */
+        public Remote() {
+        }
+
+        /**
+         * @return whether remote resources are fetched with timeouts and cached on disk
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled whether remote resources are fetched with timeouts and cached on disk
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return how long to wait for a connection to be established
+         */
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        /**
+         * @param connectTimeout how long to wait for a connection to be established
+         */
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        /**
+         * @return how long to wait for a complete response
+         */
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+
+        /**
+         * @param readTimeout how long to wait for a complete response
+         */
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        /**
+         * @return directory fetched resources are cached in, or {@code null} for the default
+         */
+        public Path getCacheDirectory() {
+            return cacheDirectory;
+        }
+
+        /**
+         * @param cacheDirectory directory fetched resources are cached in
+         */
+        public void setCacheDirectory(Path cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+        }
+
+    }
+
+    /**
+     * properties controlling how {@link Unmarshal#canonicalize() canonicalized} fields share equal
+     * values.
+     */
+    public static class Canonicalize {
+
+        /**
+         * Maximum number of distinct values a single load keeps for sharing; once reached, new
+         * values are no longer shared.
+         */
+        private int maxEntries = 1 << 20;
+
+        /** Default constructor; loads keep up to 1M distinct values. */
+        public Canonicalize() {
+        }
+
+        /**
+         * @return maximum number of distinct values a single load keeps
+         */
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        /**
+         * @param maxEntries maximum number of distinct values a single load keeps
+         */
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+    }
+
+    /**
+     * properties controlling the JVM-wide cache of resource contents parsed into tokens, which
+     * every application context in the JVM reads through. Test suites that start many contexts
+     * then parse each fixture once and only bind it again.
+     */
+    public static class TokenCache {
+
+        /**
+         * Whether resources are read through the JVM-wide token cache.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Estimated heap size of the tokens held strongly; beyond it, the least recently used
+         * are only held softly. The cache is shared, so the largest size of any context applies.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+
+        /** Default constructor; the cache starts disabled, holding up to 256MB strongly. */
+        public TokenCache() {
+        }
+
+        /**
+         * @return whether resources are read through the JVM-wide token cache
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled whether resources are read through the JVM-wide token cache
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return estimated heap size of the tokens held strongly
+         */
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        /**
+         * @param maxSize estimated heap size of the tokens held strongly
+         */
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+    }
+
+    /**
+     * properties controlling how fields of beans that aren't singletons, such as prototype and
+     * request-scoped beans, are loaded. When enabled, their resources are parsed into tokens on the
+     * first instantiation, and later instances are bound from those tokens without reading the
+     * resource, so they don't see changes to it.
+     */
+    public static class Replay {
+
+        /**
+         * Whether later instances of non-singleton beans are bound from the tokens of their first
+         * load rather than read again.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of fields whose tokens are kept for replaying; beyond it, the least
+         * recently used are read again.
+         */
+        private int maxEntries = 256;
+
+        /** Default constructor; replaying starts disabled, keeping up to 256 fields' tokens. */
+        public Replay() {
+        }
+
+        /**
+         * @return whether non-singleton beans are bound from the tokens of their first load
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled whether non-singleton beans are bound from the tokens of their first load
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return maximum number of fields whose tokens are kept for replaying
+         */
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        /**
+         * @param maxEntries maximum number of fields whose tokens are kept for replaying
+         */
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.function.Supplier;
+
+/**
+ * holder for an unmarshalled value that is swapped atomically whenever its resource changes.
+ * <p>
+ * Declare an {@link Unmarshal} field as <code>UnmarshalRef&lt;T&gt;</code>, where {@code T} is the
+ * type to unmarshal into, to have a <code>file:</code> resource watched and re-read in the
+ * background after it changes. {@link #get()} never blocks and always returns a fully bound value:
+ * either the initial one or the result of the latest successful reload. A reload that fails keeps
+ * the last good value and is available from {@link #getLastReloadFailure()}. Resources that aren't
+ * files are loaded once and never reloaded.
+ * <p>
+ * Values should be treated as immutable; hold on to the reference rather than to a value obtained
+ * from it, so reloads are picked up.
+ *
+ * @param <T> type of the unmarshalled value
+ * @see Unmarshal
+ */
+public final class UnmarshalRef<T> implements Supplier<T> {
+
+    private volatile T value;
+
+    private volatile RuntimeException lastReloadFailure;
+
+    private UnmarshalRef(T value) {
+        this.value = value;
+    }
+
+    /**
+     * Creates a reference holding a fixed value, for example to populate a field in a unit test.
+     *
+     * @param <T> type of the value
+     * @param value initial value
+     * @return a new reference
+     */
+    public static <T> UnmarshalRef<T> of(T value) {
+        return new UnmarshalRef<>(value);
+    }
+
+    /**
+     * @return the current value
+     */
+    @Override
+    public T get() {
+        return value;
+    }
+
+    /**
+     * @return the exception raised by the most recent reload if it failed, or {@code null} if the
+     *         most recent reload succeeded or none has happened
+     */
+    public RuntimeException getLastReloadFailure() {
+        return lastReloadFailure;
+    }
+
+    void reloaded(T value) {
+        this.value = value;
+        this.lastReloadFailure = null;
+    }
+
+    void reloadFailed(RuntimeException failure) {
+        this.lastReloadFailure = failure;
+    }
+
+    @Override
+    public String toString() {
+        return "UnmarshalRef[" + value + "]";
+    }
+
+}
@@ -0,0 +1,295 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+/**
+ * fetches <code>http:</code> and <code>https:</code> resources into a local disk cache, with
+ * connect and read timeouts, so a slow or unavailable origin can't stall startup indefinitely.
+ * <p>
+ * Each URL is cached as a body file plus a small properties file holding the response's
+ * <code>ETag</code> and <code>Last-Modified</code> headers. A cached URL is revalidated with a
+ * conditional GET: <code>304 Not Modified</code> reuses the cached body without transferring it
+ * again. When the origin can't be reached, times out or answers with an error, the cached copy is
+ * used and a warning logged; only a URL that has never been fetched fails. A <code>404</code>
+ * with nothing cached yields a resource that doesn't exist, so optional fields are skipped.
+ * <p>
+ * The fetched resource is a file in the cache, so it is read (and memory-mapped when large) like
+ * any local file. New bodies are downloaded to a temporary file and atomically moved into place,
+ * so readers never see a partial body.
+ * <p>
+ * {@link #prefetch} starts fetches on an executor so the remote fields of a bean, or of every
+ * singleton when prefetching is enabled, download concurrently; {@link #fetch} joins a started
+ * fetch or else fetches on the calling thread. Until {@link #clear()} ends the startup phase, each
+ * URL is fetched, and revalidated, only once however many fields and beans read it; afterwards
+ * every fetch revalidates.
+ */
+final class UnmarshalRemoteResources {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnmarshalRemoteResources.class);
+
+    private static final String ETAG = "etag";
+
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private final Path directory;
+
+    private final Duration readTimeout;
+
+    private final HttpClient client;
+
+    private final Map<String, CompletableFuture<Resource>> fetched = new ConcurrentHashMap<>();
+
+    private volatile boolean retaining = true;
+
+    /**
+     * @param directory directory the cache is kept in; created on first fetch
+     * @param connectTimeout how long to wait for a connection
+     * @param readTimeout how long to wait for a complete response
+     */
+    UnmarshalRemoteResources(Path directory, Duration connectTimeout, Duration readTimeout) {
+        this.directory = directory;
+        this.readTimeout = readTimeout;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * @param location a resolved location
+     * @return whether the location is fetched by this class
+     */
+    static boolean isRemote(String location) {
+        return location.startsWith("http:") || location.startsWith("https:");
+    }
+
+    /**
+     * starts fetching a location on an executor, unless a fetch of it has already been started.
+     */
+    void prefetch(String location, Executor executor) {
+        if (retaining) {
+            fetched.computeIfAbsent(location,
+                    l -> CompletableFuture.supplyAsync(() -> fetch(URI.create(l)), executor));
+        }
+    }
+
+    /**
+     * @param location an <code>http:</code> or <code>https:</code> URL
+     * @return the cached copy of the resource, after revalidating it with the origin once during
+     *         startup, or on every call after it
+     * @throws UnmarshalException if the resource can't be fetched and was never cached
+     */
+    Resource fetch(String location) {
+        if (!retaining) {
+            return fetch(URI.create(location));
+        }
+        CompletableFuture<Resource> future = new CompletableFuture<>();
+        CompletableFuture<Resource> existing = fetched.putIfAbsent(location, future);
+        if (existing == null) {
+            try {
+                future.complete(fetch(URI.create(location)));
+            } catch (RuntimeException e) {
+                fetched.remove(location, future);
+                future.completeExceptionally(e);
+            }
+            existing = future;
+        }
+        try {
+            return existing.join();
+        } catch (CompletionException e) {
+            // a failed fetch isn't retained, so the next field reading the location tries again
+            fetched.remove(location, existing);
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new UnmarshalException("Failed to fetch " + location, e.getCause());
+        }
+    }
+
+    /**
+     * ends the startup phase: discards fetched resources, and revalidates on every later fetch.
+     */
+    void clear() {
+        retaining = false;
+        fetched.clear();
+    }
+
+    private Resource fetch(URI uri) {
+        String key = key(uri);
+        String filename = StringUtils.getFilename(uri.getPath());
+        Path body = directory.resolve(key + "-" + (StringUtils.hasText(filename) ? filename : "resource"));
+        Path metadataFile = directory.resolve(key + ".properties");
+        Properties metadata = readMetadata(metadataFile, body);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(readTimeout).GET();
+        if (metadata != null) {
+            if (metadata.getProperty(ETAG) != null) {
+                request.header("If-None-Match", metadata.getProperty(ETAG));
+            }
+            if (metadata.getProperty(LAST_MODIFIED) != null) {
+                request.header("If-Modified-Since", metadata.getProperty(LAST_MODIFIED));
+            }
+        }
+        long start = System.nanoTime();
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, body.getFileName().toString(), ".tmp");
+            Path download = temp;
+            CompletableFuture<HttpResponse<Path>> exchange = client.sendAsync(request.build(),
+                    info -> (info.statusCode() == 200) ? HttpResponse.BodySubscribers.ofFile(download)
+                            : HttpResponse.BodySubscribers.replacing(null));
+            HttpResponse<Path> response;
+            try {
+                // bounds the whole exchange; a request timeout alone stops at the response headers
+                response = exchange.get(readTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                exchange.cancel(true);
+                return fallback(uri, body, metadata, "timed out after " + readTimeout.toMillis() + "ms");
+            } catch (ExecutionException e) {
+                return fallback(uri, body, metadata, e.getCause().toString());
+            }
+            int status = response.statusCode();
+            if (status == 304 && metadata != null) {
+                logger.debug("Resource '{}' not modified; using cached copy '{}'", uri, body);
+                return new RemoteResource(uri, body);
+            }
+            if (status == 404 && metadata == null) {
+                // an orphaned body, left without metadata, mustn't make the resource exist
+                Files.deleteIfExists(body);
+                return new RemoteResource(uri, body);
+            }
+            if (status != 200) {
+                return fallback(uri, body, metadata, "HTTP status " + status);
+            }
+            store(temp, response, body, metadataFile);
+        } catch (IOException e) {
+            return fallback(uri, body, metadata, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnmarshalException("Interrupted while fetching " + uri, e);
+        } finally {
+            delete(temp);
+        }
+        logger.debug("Fetched resource '{}' into '{}' in {}ms", uri, body,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return new RemoteResource(uri, body);
+    }
+
+    private Resource fallback(URI uri, Path body, Properties metadata, String reason) {
+        if (metadata == null) {
+            throw new UnmarshalException("Failed to fetch " + uri + ": " + reason);
+        }
+        logger.warn("Failed to fetch '{}' ({}); using cached copy '{}'", uri, reason, body);
+        return new RemoteResource(uri, body);
+    }
+
+    /**
+     * @return the metadata of a cached body, or {@code null} if nothing usable is cached
+     */
+    private static Properties readMetadata(Path metadataFile, Path body) {
+        if (!Files.isRegularFile(metadataFile) || !Files.isRegularFile(body)) {
+            return null;
+        }
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(metadataFile)) {
+            metadata.load(in);
+            return metadata;
+        } catch (IOException e) {
+            logger.debug("Ignoring unreadable cache metadata '{}': {}", metadataFile, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * moves a downloaded body into place, then writes its metadata through the same temporary
+     * file, so metadata never describes a body that isn't there.
+     */
+    private static void store(Path temp, HttpResponse<?> response, Path body, Path metadataFile)
+            throws IOException {
+        Properties metadata = new Properties();
+        response.headers().firstValue("ETag").ifPresent(etag -> metadata.setProperty(ETAG, etag));
+        response.headers().firstValue("Last-Modified").ifPresent(date -> metadata.setProperty(LAST_MODIFIED, date));
+        move(temp, body);
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            metadata.store(out, response.uri().toString());
+        }
+        move(temp, metadataFile);
+    }
+
+    private static void delete(Path temp) {
+        if (temp != null) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                logger.debug("Failed to delete temporary file '{}': {}", temp, e.toString());
+            }
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String key(URI uri) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+        return HexFormat.of().formatHex(digest.digest(uri.toString().getBytes(StandardCharsets.UTF_8)), 0, 16);
+    }
+
+    /**
+     * the cached body of a remote resource, described by its URL.
+     */
+    static final class RemoteResource extends FileSystemResource {
+
+        private final URI uri;
+
+        RemoteResource(URI uri, Path body) {
+            super(body);
+            this.uri = uri;
+        }
+
+        @Override
+        public String getDescription() {
+            return "URL [" + uri + "] cached at [" + getPath() + "]";
+        }
+
+    }
+
+}
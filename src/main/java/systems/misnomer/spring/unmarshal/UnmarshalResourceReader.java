@@ -0,0 +1,200 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.springframework.core.io.Resource;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * reads a {@link Resource} into an {@link ObjectReader}, choosing the cheapest way to get the bytes
+ * to Jackson.
+ * <ul>
+ * <li>Resources in a Unicode encoding Jackson detects natively (UTF-8, UTF-16 and UTF-32) are
+ * handed over as bytes, skipping a separate character-decoding pass; any other charset is decoded
+ * through an {@link InputStreamReader}.</li>
+ * <li>Resources backed by a file are sized up front with {@link Resource#contentLength()}. Files
+ * smaller than the mapping threshold are read into a single exactly-sized array that Jackson parses
+ * in place; larger files are memory-mapped and parsed straight from the mapped region.</li>
+ * <li>Anything else is streamed from {@link Resource#getInputStream()}.</li>
+ * <li>Compressed resources (see {@link UnmarshalCompression}) are always streamed, through a
+ * decompressor, so no full-size buffer of either the compressed or the decompressed bytes is
+ * held.</li>
+ * </ul>
+ * Element-by-element reads ({@link #readValues}) always stream, so memory stays bounded by the
+ * size of a single element. {@link #readLines Lines} of uncompressed UTF-8 files are parsed in
+ * parallel chunks by {@link UnmarshalNdjson}, and other resources' lines are streamed.
+ */
+final class UnmarshalResourceReader {
+
+    /**
+     * charsets Jackson's byte-based parser auto-detects (including BOM handling), so resources in
+     * these encodings can bypass {@link InputStreamReader}.
+     */
+    private static final Set<Charset> BYTE_PARSEABLE_CHARSETS = Set.of(StandardCharsets.UTF_8,
+            StandardCharsets.UTF_16, StandardCharsets.UTF_16BE, StandardCharsets.UTF_16LE, Charset.forName("UTF-32"),
+            Charset.forName("UTF-32BE"), Charset.forName("UTF-32LE"));
+
+    private final long mappingThreshold;
+
+    /**
+     * @param mappingThreshold file size, in bytes, at or above which files are memory-mapped
+     */
+    UnmarshalResourceReader(long mappingThreshold) {
+        this.mappingThreshold = mappingThreshold;
+    }
+
+    /**
+     * @param charset a resource charset
+     * @return whether resources in this charset are handed to Jackson as bytes, which is also a
+     *         prerequisite for binary formats and format detection
+     */
+    static boolean isByteParseable(Charset charset) {
+        return BYTE_PARSEABLE_CHARSETS.contains(charset);
+    }
+
+    Object read(ObjectReader reader, Resource resource, Charset charset) throws IOException {
+        if (!isByteParseable(charset)) {
+            try (InputStream in = openStream(resource)) {
+                return reader.readValue(new InputStreamReader(in, charset));
+            }
+        }
+        if (resource.isFile()) {
+            return readFile(reader, resource.getFile().toPath(), resource.contentLength());
+        }
+        try (InputStream in = openStream(resource)) {
+            return reader.readValue(in);
+        }
+    }
+
+    <T> MappingIterator<T> readValues(ObjectReader reader, Resource resource, Charset charset) throws IOException {
+        InputStream in = openStream(resource);
+        try {
+            return isByteParseable(charset) ? reader.readValues(in)
+                    : reader.readValues(new InputStreamReader(in, charset));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param reader reader of a single line's value
+     * @param resource a resource holding newline-delimited values
+     * @param charset the resource's charset
+     * @return an iterator over the values of the lines; unlike {@link #readValues}, a resource
+     *         starting with an array isn't unwrapped, as that array is the first line's value
+     * @throws IOException if the resource can't be opened
+     */
+    <T> MappingIterator<T> readLineValues(ObjectReader reader, Resource resource, Charset charset)
+            throws IOException {
+        InputStream in = openStream(resource);
+        try {
+            return reader.readValues(isByteParseable(charset) ? reader.createParser(in)
+                    : reader.createParser(new InputStreamReader(in, charset)));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param reader reader of a single line's value
+     * @param resource a resource holding newline-delimited values
+     * @param charset the resource's charset
+     * @return the values of every line, in order
+     * @throws IOException if the resource can't be read or a line can't be parsed
+     */
+    List<Object> readLines(ObjectReader reader, Resource resource, Charset charset) throws IOException {
+        if (StandardCharsets.UTF_8.equals(charset) && resource.isFile()) {
+            Path path = resource.getFile().toPath();
+            if (!isCompressed(path)) {
+                return UnmarshalNdjson.read(reader, path, resource.contentLength());
+            }
+        }
+        try (MappingIterator<Object> values = readLineValues(reader, resource, charset)) {
+            return values.readAll();
+        }
+    }
+
+    /**
+     * @param resource a resource
+     * @return the resource's content as a stream, decompressed if the resource is compressed
+     * @throws IOException if the resource can't be opened
+     * @see UnmarshalCompression
+     */
+    static InputStream openStream(Resource resource) throws IOException {
+        InputStream in = resource.getInputStream();
+        try {
+            return UnmarshalCompression.decompressIfNecessary(in, resource.getFilename());
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private Object readFile(ObjectReader reader, Path path, long length) throws IOException {
+        if (isCompressed(path)) {
+            try (InputStream in = UnmarshalCompression.decompressIfNecessary(Files.newInputStream(path),
+                    path.getFileName().toString())) {
+                return reader.readValue(in);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (length >= mappingThreshold && length <= Integer.MAX_VALUE) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                return reader.readValue(new ByteBufferBackedInputStream(mapped));
+            }
+            if (length < Integer.MAX_VALUE) {
+                return reader.readValue(readFully(channel, (int) length));
+            }
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return reader.readValue(in);
+        }
+    }
+
+    /**
+     * decides whether a file must be streamed through a decompressor rather than read or mapped
+     * whole, looking at its leading bytes only if its name is inconclusive.
+     */
+    private static boolean isCompressed(Path path) throws IOException {
+        String filename = path.getFileName().toString();
+        if (UnmarshalCompression.fromFilename(filename) != null) {
+            return true;
+        }
+        if (UnmarshalFormat.fromLocation(filename) != null) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return UnmarshalCompression.fromHeader(in.readNBytes(6)) != null;
+        }
+    }
+
+    /**
+     * reads the channel into an array sized from the length reported up front, so Jackson can parse
+     * it with no intermediate copies. Files that shrink while being read yield a shorter array.
+     */
+    private static byte[] readFully(FileChannel channel, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // keep reading until the buffer is full or the file ends
+        }
+        return (buffer.position() == length) ? bytes : Arrays.copyOf(bytes, buffer.position());
+    }
+
+}
@@ -0,0 +1,200 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * watches files for changes with a single {@link WatchService} and a single daemon thread, shared by
+ * every reloadable field of an application context.
+ * <p>
+ * Events are collected per directory and debounced: callbacks run once the directory has been
+ * quiet for the debounce interval, so a file written in several steps is reloaded once. Any event
+ * in a directory re-checks every file watched in it, comparing size, modification time and file
+ * key (following symbolic links). That way a replacement by rename, or by swapping a symbolic link
+ * as Kubernetes does for mounted config maps, is noticed just like an in-place write. Callbacks run
+ * on the watcher thread, one at a time, so reloads of one file never overlap.
+ */
+final class UnmarshalResourceWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnmarshalResourceWatcher.class);
+
+    private final long debounceNanos;
+
+    private final WatchService watchService;
+
+    private final Map<Path, List<Watch<?>>> watches = new ConcurrentHashMap<>();
+
+    /**
+     * @param debounce how long a directory must be quiet before its changed files are reported
+     * @throws IOException if the file system can't provide a watch service
+     */
+    UnmarshalResourceWatcher(Duration debounce) throws IOException {
+        this.debounceNanos = debounce.toNanos();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        Thread thread = new Thread(this::run, "unmarshal-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * starts watching a file on behalf of a target, which is held weakly. Once the target has been
+     * collected its watch is dropped: when its file next changes, or when any file is watched
+     * afterwards, whichever comes first. Watches of discarded targets therefore can't accumulate
+     * on files that never change.
+     *
+     * @param <T> target type
+     * @param file the file to watch
+     * @param target what the file's changes are reported to; <code>onChange</code> must not
+     *        reference it, or it's never collected
+     * @param onChange called with the target on the watcher thread after the file changes
+     * @throws IOException if the file's directory can't be watched
+     */
+    <T> void watch(Path file, T target, Consumer<? super T> onChange) throws IOException {
+        watches.values().forEach(directoryWatches -> directoryWatches.removeIf(Watch::isCleared));
+        Path absolute = file.toAbsolutePath();
+        Path directory = absolute.getParent();
+        List<Watch<?>> directoryWatches = watches.computeIfAbsent(directory, d -> new CopyOnWriteArrayList<>());
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        directoryWatches.add(new Watch<>(absolute, target, onChange, fingerprint(absolute)));
+        logger.debug("Watching '{}' for changes", absolute);
+    }
+
+    /**
+     * @return the number of watches held, including those of targets collected since the last
+     *         purge
+     */
+    int size() {
+        return watches.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void run() {
+        Map<Path, Long> pending = new HashMap<>();
+        try {
+            while (true) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long due = pending.values().stream().mapToLong(Long::longValue).min().getAsLong();
+                    key = watchService.poll(Math.max(due - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                }
+                if (key != null) {
+                    key.pollEvents();
+                    pending.put((Path) key.watchable(), System.nanoTime() + debounceNanos);
+                    key.reset();
+                }
+                long now = System.nanoTime();
+                for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext();) {
+                    Map.Entry<Path, Long> entry = it.next();
+                    if (entry.getValue() - now <= 0) {
+                        it.remove();
+                        checkDirectory(entry.getKey());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed along with the application context
+        }
+    }
+
+    private void checkDirectory(Path directory) {
+        List<Watch<?>> directoryWatches = watches.getOrDefault(directory, List.of());
+        for (Watch<?> watch : directoryWatches) {
+            Object fingerprint = fingerprint(watch.file);
+            if (fingerprint == null || fingerprint.equals(watch.fingerprint)) {
+                continue;
+            }
+            watch.fingerprint = fingerprint;
+            boolean notified;
+            try {
+                notified = watch.notifyTarget();
+            } catch (RuntimeException e) {
+                logger.warn("Change handler for '{}' failed", watch.file, e);
+                notified = true;
+            }
+            if (!notified) {
+                directoryWatches.remove(watch);
+            }
+        }
+    }
+
+    /**
+     * @return what identifies the current content of a file, or {@code null} if it doesn't exist
+     *         (a deleted file isn't a change worth reloading; its re-creation is)
+     */
+    private static Object fingerprint(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return List.of(attributes.lastModifiedTime(), attributes.size(),
+                    Objects.requireNonNullElse(attributes.fileKey(), file.toRealPath()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        watches.clear();
+    }
+
+    private static final class Watch<T> {
+
+        private final Path file;
+
+        private final WeakReference<T> target;
+
+        private final Consumer<? super T> onChange;
+
+        private volatile Object fingerprint;
+
+        private Watch(Path file, T target, Consumer<? super T> onChange, Object fingerprint) {
+            this.file = file;
+            this.target = new WeakReference<>(target);
+            this.onChange = onChange;
+            this.fingerprint = fingerprint;
+        }
+
+        private boolean isCleared() {
+            return target.get() == null;
+        }
+
+        /**
+         * @return whether the target was still there to be notified
+         */
+        private boolean notifyTarget() {
+            T current = target.get();
+            if (current == null) {
+                return false;
+            }
+            onChange.accept(current);
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,334 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * on-disk cache of JSON resources transcoded to Smile, so later startups with identical resource
+ * content skip JSON tokenizing.
+ * <p>
+ * A resource with a URI has a single snapshot, named after a digest of its URI, its charset, the
+ * JSON parser features and the Jackson version, next to a properties file recording the
+ * resource's last-modified time and length and a SHA-256 digest of its bytes. While the time and
+ * length match, the snapshot is read without opening the resource at all. When they don't, the
+ * resource is read and digested: unchanged content (a repackaged or touched file) reuses the
+ * snapshot, and changed content replaces it, so stale snapshots don't accumulate. Resources
+ * without a URI are keyed by the digest of their bytes alone.
+ * <p>
+ * Snapshots hold tokens, not bound objects: values are still bound to the field's current type on
+ * every read, so changes to the target class can't make a snapshot stale. A snapshot that can't
+ * be bound falls back to the original JSON, which is then re-snapshotted.
+ * <p>
+ * Snapshots are written only after the JSON has been bound successfully, through a temporary file
+ * that is atomically moved into place, and a resource's properties only once its snapshot is in
+ * place, so concurrent writers and crashes never leave a partial or mismatched snapshot behind.
+ * Failures to write are logged and otherwise ignored. The directory can be emptied at any time.
+ */
+final class UnmarshalSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnmarshalSnapshotCache.class);
+
+    /** bumped whenever the snapshot layout or key derivation changes. */
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private static final String SUFFIX = ".sml";
+
+    private static final String METADATA_SUFFIX = ".properties";
+
+    private static final String VERSION = "version";
+
+    private static final String DIGEST = "digest";
+
+    private final Path directory;
+
+    private final JsonFactory jsonFactory;
+
+    private final ObjectMapper smileMapper;
+
+    /**
+     * @param directory directory snapshots are stored in; created on first write
+     * @param jsonMapper mapper whose factory reads the JSON resources
+     * @param smileMapper mapper that writes and reads snapshots, normally a Smile copy of
+     *        <code>jsonMapper</code>
+     */
+    UnmarshalSnapshotCache(Path directory, ObjectMapper jsonMapper, ObjectMapper smileMapper) {
+        this.directory = directory;
+        this.jsonFactory = jsonMapper.getFactory();
+        this.smileMapper = smileMapper;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * reads a JSON resource through the cache.
+     *
+     * @param element the field being loaded, whose reader binds the JSON
+     * @param resource the JSON resource
+     * @return the bound value
+     * @throws IOException if the resource can't be read or bound
+     */
+    Object read(UnmarshalElement element, Resource resource) throws IOException {
+        Charset charset = element.getCharset();
+        String name = name(resource, charset);
+        Path metadataFile = (name != null) ? directory.resolve(name + METADATA_SUFFIX) : null;
+        Properties metadata = (metadataFile != null) ? readMetadata(metadataFile) : null;
+        String version = version(resource);
+        if (metadata != null && version != null && version.equals(metadata.getProperty(VERSION))) {
+            Object value = readSnapshot(element, resource, directory.resolve(name + SUFFIX));
+            if (value != null) {
+                return value;
+            }
+        }
+        byte[] content;
+        try (InputStream in = UnmarshalResourceReader.openStream(resource)) {
+            content = in.readAllBytes();
+        }
+        String digest = digest(charset, content);
+        Path snapshot = directory.resolve(((name != null) ? name : digest) + SUFFIX);
+        if (name == null || (metadata != null && digest.equals(metadata.getProperty(DIGEST)))) {
+            Object value = readSnapshot(element, resource, snapshot);
+            if (value != null) {
+                if (metadataFile != null) {
+                    writeMetadata(metadataFile, version, digest, resource);
+                }
+                return value;
+            }
+        }
+        ObjectReader reader = element.getReader();
+        Object value = UnmarshalResourceReader.isByteParseable(charset) ? reader.readValue(content)
+                : reader.readValue(new String(content, charset));
+        if (write(snapshot, metadataFile, content, charset, resource) && metadataFile != null) {
+            writeMetadata(metadataFile, version, digest, resource);
+        }
+        return value;
+    }
+
+    /**
+     * @return the value bound from a snapshot, or {@code null} if there's none or it can't be bound
+     */
+    private Object readSnapshot(UnmarshalElement element, Resource resource, Path snapshot) {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        ObjectReader snapshotReader = smileMapper.readerFor(element.getJavaType());
+        try (JsonParser parser = parser(Files.readAllBytes(snapshot), element.getPointer())) {
+            Object value = snapshotReader.readValue(parser);
+            logger.debug("Loaded resource '{}' from snapshot '{}'", resource, snapshot);
+            return value;
+        } catch (IOException e) {
+            logger.debug("Ignoring unusable snapshot '{}' of resource '{}': {}", snapshot, resource, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * @return a parser of a snapshot that reports its decimals as a JSON parser would, restricted
+     *         to the subtree at <code>pointer</code> if there is one
+     */
+    private JsonParser parser(byte[] snapshot, JsonPointer pointer) throws IOException {
+        JsonParser parser = new DecimalsAsDoubles(smileMapper.getFactory().createParser(snapshot));
+        return (pointer != null) ? new FilteringParserDelegate(parser, new JsonPointerBasedFilter(pointer),
+                TokenFilter.Inclusion.ONLY_INCLUDE_ALL, false) : parser;
+    }
+
+    /**
+     * writes a snapshot, first removing the properties of the one it replaces so they can't
+     * describe the new one.
+     *
+     * @return whether the snapshot was written
+     */
+    private boolean write(Path snapshot, Path metadataFile, byte[] content, Charset charset, Resource resource) {
+        try {
+            byte[] transcoded = transcode(content, charset);
+            Files.createDirectories(directory);
+            if (metadataFile != null) {
+                Files.deleteIfExists(metadataFile);
+            }
+            Path temp = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, transcoded);
+                move(temp, snapshot);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            logger.debug("Wrote snapshot '{}' of resource '{}'", snapshot, resource);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to write snapshot of resource '{}' to '{}': {}", resource, directory, e.toString());
+            return false;
+        }
+    }
+
+    private void writeMetadata(Path metadataFile, String version, String digest, Resource resource) {
+        if (version == null) {
+            return;
+        }
+        Properties metadata = new Properties();
+        metadata.setProperty(VERSION, version);
+        metadata.setProperty(DIGEST, digest);
+        try {
+            Path temp = Files.createTempFile(directory, metadataFile.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    metadata.store(out, resource.getDescription());
+                }
+                move(temp, metadataFile);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write snapshot metadata of resource '{}' to '{}': {}", resource, directory,
+                    e.toString());
+        }
+    }
+
+    /**
+     * @return a snapshot's metadata, or {@code null} if it has none or it can't be read
+     */
+    private static Properties readMetadata(Path metadataFile) {
+        if (!Files.isRegularFile(metadataFile)) {
+            return null;
+        }
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(metadataFile)) {
+            metadata.load(in);
+            return metadata;
+        } catch (IOException e) {
+            logger.debug("Ignoring unreadable snapshot metadata '{}': {}", metadataFile, e.toString());
+            return null;
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return the resource's last-modified time and length, or {@code null} if either can't be
+     *         determined
+     */
+    private static String version(Resource resource) {
+        try {
+            return resource.lastModified() + ":" + resource.contentLength();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * copies every token of the JSON content to a Smile document, writing decimals exactly so
+     * <code>BigDecimal</code> targets bind identically from either form. Smile would then report
+     * them as <code>BigDecimal</code>, so snapshots are read through {@link DecimalsAsDoubles}
+     * to keep untyped and <code>JsonNode</code> targets binding doubles, as they do from JSON.
+     */
+    private byte[] transcode(byte[] content, Charset charset) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+        try (JsonParser parser = UnmarshalResourceReader.isByteParseable(charset) ? jsonFactory.createParser(content)
+                : jsonFactory.createParser(new String(content, charset));
+                JsonGenerator generator = smileMapper.getFactory().createGenerator(out)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEventExact(parser);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the name of the resource's snapshot, or {@code null} if it has no URI to name it by
+     */
+    private String name(Resource resource, Charset charset) {
+        try {
+            return digest(charset, resource.getURI().toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return a digest of the bytes, qualified by everything else that decides the snapshot's tokens
+     */
+    private String digest(Charset charset, byte[] bytes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+        String header = SNAPSHOT_VERSION + "|" + jsonFactory.version() + "|" + smileMapper.getFactory().version()
+                + "|" + jsonFactory.getParserFeatures() + "|" + jsonFactory.getFormatParserFeatures() + "|"
+                + charset.name() + "|";
+        digest.update(header.getBytes(StandardCharsets.UTF_8));
+        digest.update(bytes);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * reports a snapshot's exact decimals the way a JSON parser reports its floating-point
+     * numbers: as doubles of unknown precision, deferred as their text, whose exact value is still
+     * available from {@link #getDecimalValue()} to targets that ask for it.
+     */
+    private static final class DecimalsAsDoubles extends JsonParserDelegate {
+
+        DecimalsAsDoubles(JsonParser parser) {
+            super(parser);
+        }
+
+        private boolean isDecimal() throws IOException {
+            return currentToken() == JsonToken.VALUE_NUMBER_FLOAT && super.getNumberType() == NumberType.BIG_DECIMAL;
+        }
+
+        @Override
+        public NumberType getNumberType() throws IOException {
+            return isDecimal() ? NumberType.DOUBLE : super.getNumberType();
+        }
+
+        @Override
+        public NumberTypeFP getNumberTypeFP() throws IOException {
+            return isDecimal() ? NumberTypeFP.UNKNOWN : super.getNumberTypeFP();
+        }
+
+        @Override
+        public Number getNumberValue() throws IOException {
+            return isDecimal() ? getDoubleValue() : super.getNumberValue();
+        }
+
+        @Override
+        public Object getNumberValueDeferred() throws IOException {
+            return isDecimal() ? getText() : super.getNumberValueDeferred();
+        }
+
+    }
+
+}
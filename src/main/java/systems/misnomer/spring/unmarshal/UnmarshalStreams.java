@@ -0,0 +1,102 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * adapts a source of {@link UnmarshalIterator}s to the streaming field types supported by
+ * {@link Unmarshal}. Apart from {@link UnmarshalElement.Kind#ITERATOR}, which is single-use by
+ * nature, every adapter defers opening the resource until the value is actually consumed. Also
+ * adapts background loads to Reactor's <code>Mono</code>.
+ */
+final class UnmarshalStreams {
+
+    /** fully qualified name of Reactor's <code>Flux</code>, compared by name so Reactor stays optional. */
+    static final String FLUX_CLASS_NAME = "reactor.core.publisher.Flux";
+
+    /** fully qualified name of Reactor's <code>Mono</code>, compared by name so Reactor stays optional. */
+    static final String MONO_CLASS_NAME = "reactor.core.publisher.Mono";
+
+    private static final boolean reactorPresent =
+            ClassUtils.isPresent(FLUX_CLASS_NAME, UnmarshalStreams.class.getClassLoader());
+
+    private UnmarshalStreams() {
+    }
+
+    /**
+     * @param kind a {@link UnmarshalElement.Kind#isStreaming() streaming} kind
+     * @param opener opens a fresh iterator over the resource each time it is called
+     * @return a value assignable to a field of the given kind
+     */
+    static Object adapt(UnmarshalElement.Kind kind, Supplier<UnmarshalIterator<Object>> opener) {
+        switch (kind) {
+            case ITERATOR:
+                return opener.get();
+            case ITERABLE:
+                return (Iterable<Object>) opener::get;
+            case STREAM:
+                return stream(opener);
+            case FLUX:
+                if (!reactorPresent) {
+                    throw new UnmarshalException("Reactor is required for Flux fields but is not on the classpath");
+                }
+                return ReactorDelegate.flux(opener);
+            default:
+                throw new IllegalArgumentException("Not a streaming kind: " + kind);
+        }
+    }
+
+    /**
+     * @param future a background load
+     * @return a <code>Mono</code> of the load's value, which cancelling a subscription doesn't
+     *         cancel, since other subscribers may still want it
+     */
+    static Object mono(CompletableFuture<Object> future) {
+        if (!reactorPresent) {
+            throw new UnmarshalException("Reactor is required for Mono fields but is not on the classpath");
+        }
+        return ReactorDelegate.mono(future);
+    }
+
+    /**
+     * a sequential, ordered stream that opens the resource when its terminal operation starts and
+     * closes it when the stream is closed.
+     */
+    private static Stream<Object> stream(Supplier<UnmarshalIterator<Object>> opener) {
+        AtomicReference<UnmarshalIterator<Object>> opened = new AtomicReference<>();
+        return StreamSupport.stream(() -> {
+            UnmarshalIterator<Object> iterator = opener.get();
+            opened.set(iterator);
+            return Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+        }, Spliterator.ORDERED, false).onClose(() -> {
+            UnmarshalIterator<Object> iterator = opened.get();
+            if (iterator != null) {
+                iterator.close();
+            }
+        });
+    }
+
+    /**
+     * isolates references to Reactor so this class loads without it.
+     */
+    private static final class ReactorDelegate {
+
+        static Object flux(Supplier<UnmarshalIterator<Object>> opener) {
+            return Flux.using(opener::get, iterator -> Flux.fromIterable(() -> iterator), UnmarshalIterator::close);
+        }
+
+        static Object mono(CompletableFuture<Object> future) {
+            return Mono.fromFuture(future, true);
+        }
+
+    }
+
+}
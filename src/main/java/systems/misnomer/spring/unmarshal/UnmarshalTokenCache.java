@@ -0,0 +1,267 @@
+package systems.misnomer.spring.unmarshal;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.core.io.Resource;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * cache of resource contents already parsed into tokens, so a resource read again (by another
+ * application context, or for another prototype bean) is only bound, not read and parsed.
+ * Values are always bound afresh from the tokens, so nothing mutable is shared between callers.
+ * <p>
+ * Entries are keyed by the resource's URI, its content version (last-modified time and length),
+ * the charset, format and pointer the tokens were read with, and the {@link Features parser
+ * features} of the reader that read them. Changing a file therefore misses the cache, as does
+ * reading it with a mapper configured to parse it differently. Resources whose version can't be
+ * determined aren't cached. Cached tokens carry no codec, so they don't keep the context that read
+ * them reachable.
+ * <p>
+ * Entries are held strongly, in least-recently-used order, up to a total size measured by the
+ * tokens' {@link #sizeOf estimated heap footprint}. Entries evicted from there are kept only
+ * through soft references, which the garbage collector clears under memory pressure; a soft entry
+ * that's used again becomes strong again. Hits, soft hits, misses and evictions are counted.
+ * <p>
+ * {@link #shared()} is the cache shared by every application context in the JVM, which is what
+ * test suites with many contexts benefit from. Its size is the largest any context
+ * {@link #requireMaxSize requires}, so no context shrinks the cache another relies on.
+ */
+final class UnmarshalTokenCache {
+
+    private static final UnmarshalTokenCache SHARED = new UnmarshalTokenCache(0);
+
+    /** estimated heap footprint of a token, excluding any text or number it holds. */
+    private static final int TOKEN_SIZE = 8;
+
+    /** estimated heap footprint of a string or number object, excluding its characters. */
+    private static final int VALUE_SIZE = 24;
+
+    /**
+     * identifies the tokens of one version of one resource, read one way.
+     */
+    record Key(String uri, long lastModified, long length, Charset charset, UnmarshalFormat format,
+            JsonPointer pointer, Features features) {
+
+        /**
+         * @return the key of a resource's current content read by the reader, or {@code null} if
+         *         its version can't be determined
+         */
+        static Key of(Resource resource, ObjectReader reader, Charset charset, UnmarshalFormat format,
+                JsonPointer pointer) {
+            try {
+                return new Key(resource.getURI().toString(), resource.lastModified(), resource.contentLength(),
+                        charset, format, pointer, Features.of(reader));
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+    }
+
+    /**
+     * the settings of a reader that decide which tokens it reads from a resource: its parser
+     * factory, the factory's parser features, the reader's deserialization features (some of which
+     * change how numbers are buffered), and the factory's read constraints.
+     */
+    record Features(Class<?> factory, int parserFeatures, int formatParserFeatures, int deserializationFeatures,
+            int maxNestingDepth, long maxDocumentLength, long maxTokenCount, int maxNumberLength,
+            int maxStringLength, int maxNameLength) {
+
+        static Features of(ObjectReader reader) {
+            JsonFactory factory = reader.getFactory();
+            StreamReadConstraints constraints = factory.streamReadConstraints();
+            return new Features(factory.getClass(), factory.getParserFeatures(), factory.getFormatParserFeatures(),
+                    reader.getConfig().getDeserializationFeatures(), constraints.getMaxNestingDepth(),
+                    constraints.getMaxDocumentLength(), constraints.getMaxTokenCount(),
+                    constraints.getMaxNumberLength(), constraints.getMaxStringLength(),
+                    constraints.getMaxNameLength());
+        }
+
+    }
+
+    /**
+     * a snapshot of a cache's counters.
+     *
+     * @param hits lookups answered by a strongly held entry
+     * @param softHits lookups answered by an entry only held softly, which became strong again
+     * @param misses lookups that had to read the resource
+     * @param evictions entries moved from strong to soft references to stay within the size
+     * @param entries entries held strongly
+     * @param size estimated heap footprint of the tokens held strongly, in bytes
+     */
+    record Statistics(long hits, long softHits, long misses, long evictions, int entries, long size) {
+    }
+
+    /**
+     * reads a resource's tokens on a cache miss.
+     */
+    @FunctionalInterface
+    interface Loader {
+
+        TokenBuffer load() throws IOException;
+
+    }
+
+    /**
+     * tokens and their estimated size, so an entry's size is only estimated once.
+     */
+    private record Entry(TokenBuffer tokens, long size) {
+    }
+
+    private final LinkedHashMap<Key, Entry> strong = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<Key, SoftReference<Entry>> soft = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder softHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private long maxSize;
+
+    private long size;
+
+    /**
+     * @param maxSize estimated heap footprint of the tokens held strongly, in bytes
+     */
+    UnmarshalTokenCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cache shared by every application context in the JVM
+     */
+    static UnmarshalTokenCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * changes the total size held strongly, evicting entries if it shrinks.
+     */
+    synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * grows the total size held strongly to at least the given size. Contexts sharing the
+     * {@link #shared()} cache each require the size they're configured with, so the largest applies
+     * and none evicts entries another context's size allows.
+     */
+    synchronized void requireMaxSize(long maxSize) {
+        this.maxSize = Math.max(this.maxSize, maxSize);
+    }
+
+    /**
+     * @param key the tokens to look up
+     * @param loader reads the tokens on a miss; called without holding the cache's lock, so
+     *        concurrent misses of one key may each load it
+     * @return the cached or newly loaded tokens, which callers must only read, or {@code null} if
+     *         the loader found none, which isn't cached
+     * @throws IOException if the loader fails
+     */
+    TokenBuffer get(Key key, Loader loader) throws IOException {
+        TokenBuffer tokens = lookup(key);
+        if (tokens != null) {
+            return tokens;
+        }
+        misses.increment();
+        tokens = loader.load();
+        if (tokens != null) {
+            tokens.setCodec(null);
+            put(key, new Entry(tokens, sizeOf(tokens)));
+        }
+        return tokens;
+    }
+
+    private synchronized TokenBuffer lookup(Key key) {
+        Entry entry = strong.get(key);
+        if (entry != null) {
+            hits.increment();
+            return entry.tokens();
+        }
+        SoftReference<Entry> reference = soft.remove(key);
+        entry = (reference != null) ? reference.get() : null;
+        if (entry == null) {
+            return null;
+        }
+        softHits.increment();
+        put(key, entry);
+        return entry.tokens();
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        soft.remove(key);
+        Entry previous = strong.put(key, entry);
+        size += entry.size() - ((previous != null) ? previous.size() : 0);
+        evict();
+    }
+
+    /**
+     * @return an estimate of the heap the tokens take up: a slot per token, plus an object for
+     *         every name, string and number, with its characters
+     * @throws IOException if the tokens can't be read back
+     */
+    static long sizeOf(TokenBuffer tokens) throws IOException {
+        long size = 0;
+        try (JsonParser parser = tokens.asParser()) {
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                size += TOKEN_SIZE;
+                if (token == JsonToken.FIELD_NAME || token == JsonToken.VALUE_STRING) {
+                    size += VALUE_SIZE + parser.getTextLength();
+                } else if (token.isNumeric() || token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+                    size += VALUE_SIZE;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * demotes least recently used entries to soft references until the strong ones fit, and
+     * forgets soft references that have been cleared.
+     */
+    private void evict() {
+        for (Iterator<Map.Entry<Key, Entry>> entries = strong.entrySet().iterator();
+                size > maxSize && entries.hasNext();) {
+            Map.Entry<Key, Entry> eldest = entries.next();
+            entries.remove();
+            size -= eldest.getValue().size();
+            soft.put(eldest.getKey(), new SoftReference<>(eldest.getValue()));
+            evictions.increment();
+        }
+        soft.values().removeIf(reference -> reference.get() == null);
+    }
+
+    /**
+     * @return the cache's counters
+     */
+    synchronized Statistics getStatistics() {
+        return new Statistics(hits.sum(), softHits.sum(), misses.sum(), evictions.sum(), strong.size(), size);
+    }
+
+    /**
+     * empties the cache; counters are kept.
+     */
+    synchronized void clear() {
+        strong.clear();
+        soft.clear();
+        size = 0;
+    }
+
+}
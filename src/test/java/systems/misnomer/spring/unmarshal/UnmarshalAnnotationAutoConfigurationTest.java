@@ -1,17 +1,37 @@
 package systems.misnomer.spring.unmarshal;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline.TimelineEvent;
 import org.springframework.boot.test.context.FilteredClassLoader;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.test.util.ReflectionTestUtils;
+import com.fasterxml.jackson.core.JsonParseException;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 /**
  * tests auto-configuration in {@link UnmarshalAnnotationAutoConfiguration}.
@@ -113,6 +133,221 @@ class UnmarshalAnnotationAutoConfigurationTest {
         });
     }
 
+    @Test
+    void sharedFieldsReceiveTheSameInstance() {
+        this.contextRunner.withBean("first", SharedUserBean.class).withBean("second", SharedUserBean.class)
+                .run((context) -> {
+                    SharedUserBean first = context.getBean("first", SharedUserBean.class);
+                    SharedUserBean second = context.getBean("second", SharedUserBean.class);
+                    assertThat(first.users).hasSize(2).isSameAs(second.users);
+                });
+    }
+
+    @Test
+    void sharedFieldsAtDifferentPointersReceiveTheirOwnValues() {
+        this.contextRunner.withBean(SharedPointersBean.class).run((context) -> {
+            SharedPointersBean bean = context.getBean(SharedPointersBean.class);
+            assertThat(bean.first.getName()).isEqualTo("Max");
+            assertThat(bean.second.getName()).isEqualTo("Annie");
+        });
+    }
+
+    @Test
+    void unsharedFieldsReceiveTheirOwnInstance() {
+        this.contextRunner.withBean("first", ParentBean.class).withBean("second", ParentBean.class)
+                .run((context) -> {
+                    ParentBean first = context.getBean("first", ParentBean.class);
+                    ParentBean second = context.getBean("second", ParentBean.class);
+                    assertThat(first.parentUser).isNotSameAs(second.parentUser);
+                });
+    }
+
+    @Test
+    void sharedPropertySharesEveryField() {
+        this.contextRunner.withPropertyValues("unmarshal.shared=true").withBean("first", ParentBean.class)
+                .withBean("second", ParentBean.class).run((context) -> {
+                    ParentBean first = context.getBean("first", ParentBean.class);
+                    ParentBean second = context.getBean("second", ParentBean.class);
+                    assertThat(first.parentUser).isSameAs(second.parentUser);
+                });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void binaryFormatMappersAreRegisteredWhenAvailable() {
+        this.contextRunner.run((context) -> {
+            UnmarshalAnnotationPostProcessor pp = context.getBean(UnmarshalAnnotationPostProcessor.class);
+            assertThat((Map<UnmarshalFormat, ?>) ReflectionTestUtils.getField(pp, "formatMappers"))
+                    .containsOnlyKeys(UnmarshalFormat.JSON, UnmarshalFormat.SMILE, UnmarshalFormat.CBOR);
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void binaryFormatMappersAreSkippedWhenUnavailable() {
+        this.contextRunner.withClassLoader(new FilteredClassLoader(SmileFactory.class))
+                .run((context) -> {
+                    UnmarshalAnnotationPostProcessor pp = context.getBean(UnmarshalAnnotationPostProcessor.class);
+                    assertThat((Map<UnmarshalFormat, ?>) ReflectionTestUtils.getField(pp, "formatMappers"))
+                            .containsOnlyKeys(UnmarshalFormat.JSON, UnmarshalFormat.CBOR);
+                });
+    }
+
+    @Test
+    void prefetchLoadsSingletonFieldsOnTheTaskExecutor() {
+        AtomicInteger executions = new AtomicInteger();
+        Executor countingExecutor = task -> {
+            executions.incrementAndGet();
+            new Thread(task).start();
+        };
+        this.contextRunner.withPropertyValues("unmarshal.prefetch.enabled=true")
+                .withBean(UnmarshalAnnotationAutoConfiguration.UNMARSHAL_ANNOTATION_TASK_EXECUTOR, Executor.class,
+                        () -> countingExecutor)
+                .withBean("childBean", ChildBean.class).withBean("first", SharedUserBean.class)
+                .withBean("second", SharedUserBean.class).run((context) -> {
+                    assertThat(context.getBean(ChildBean.class).parentUser.getName()).isEqualTo("Max");
+                    assertThat(context.getBean("first", SharedUserBean.class).users)
+                            .isSameAs(context.getBean("second", SharedUserBean.class).users);
+                    assertThat(executions).hasValue(2);
+                    UnmarshalAnnotationPostProcessor pp = context.getBean(UnmarshalAnnotationPostProcessor.class);
+                    assertThat((Map<?, ?>) ReflectionTestUtils.getField(pp, "prefetched")).isEmpty();
+                });
+    }
+
+    @Test
+    void defaultTaskExecutorQueuesLoadsBeyondItsLimit() {
+        this.contextRunner.withPropertyValues("unmarshal.task.concurrency-limit=1").run((context) -> {
+            Executor executor = (Executor) ReflectionTestUtils
+                    .getField(context.getBean(UnmarshalAnnotationPostProcessor.class), "executor");
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(3);
+            for (int i = 0; i < 3; i++) {
+                executor.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                });
+            }
+            release.countDown();
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        });
+    }
+
+    @Test
+    void prefetchFailureSurfacesWhenTheBeanIsCreated() {
+        this.contextRunner.withPropertyValues("unmarshal.prefetch.enabled=true")
+                .withBean("notJsonBean", NotJsonBean.class).run((context) -> {
+                    assertThat(context).hasFailed();
+                    assertThat(context.getStartupFailure()).hasRootCauseInstanceOf(JsonParseException.class);
+                });
+    }
+
+    @Test
+    void snapshotsAreWrittenToTheConfiguredDirectory(@TempDir Path snapshots) {
+        this.contextRunner
+                .withPropertyValues("unmarshal.snapshot.enabled=true", "unmarshal.snapshot.directory=" + snapshots)
+                .withBean("parentBean", ParentBean.class).run((context) -> {
+                    assertThat(context.getBean(ParentBean.class).parentUser.getName()).isEqualTo("Max");
+                    try (Stream<Path> files = Files.list(snapshots)) {
+                        assertThat(files).map(path -> path.getFileName().toString()).hasSize(2)
+                                .anyMatch(name -> name.endsWith(".sml"))
+                                .anyMatch(name -> name.endsWith(".properties"));
+                    }
+                });
+    }
+
+    @Test
+    void prototypeBeansAreBoundFromReplayedTokens(@TempDir Path fixtures) throws Exception {
+        Path fixture = Files.writeString(fixtures.resolve("user.json"), "{\"name\":\"Max\"}");
+        this.contextRunner.withPropertyValues("fixture=" + fixture.toUri(), "unmarshal.replay.enabled=true")
+                .withBean("prototypeBean", FixtureBean.class, FixtureBean::new,
+                        (definition) -> definition.setScope(BeanDefinition.SCOPE_PROTOTYPE))
+                .run((context) -> {
+                    FixtureBean first = context.getBean(FixtureBean.class);
+                    Files.delete(fixture);
+                    FixtureBean second = context.getBean(FixtureBean.class);
+                    assertThat(second.user.getName()).isEqualTo("Max");
+                    assertThat(second.user).isNotSameAs(first.user);
+                });
+    }
+
+    @Test
+    void prototypeBeansDontLeavePointerGroupsBehind(@TempDir Path fixtures) throws Exception {
+        Files.writeString(fixtures.resolve("users.json"), "[{\"name\":\"Max\"},{\"name\":\"Annie\"}]");
+        this.contextRunner.withPropertyValues("fixtures=" + fixtures.toUri())
+                .withBean("prototypeBean", GroupedFixtureBean.class, GroupedFixtureBean::new,
+                        (definition) -> definition.setScope(BeanDefinition.SCOPE_PROTOTYPE))
+                .run((context) -> {
+                    // the missing resource fails creation after the first field, before the second
+                    assertThatThrownBy(() -> context.getBean(GroupedFixtureBean.class))
+                            .hasRootCauseInstanceOf(UnmarshalException.class);
+                    UnmarshalAnnotationPostProcessor pp = context.getBean(UnmarshalAnnotationPostProcessor.class);
+                    assertThat((Map<?, ?>) ReflectionTestUtils.getField(pp, "prefetched")).isEmpty();
+                    Files.writeString(fixtures.resolve("user.json"), "{\"name\":\"Sam\"}");
+                    GroupedFixtureBean bean = context.getBean(GroupedFixtureBean.class);
+                    assertThat(bean.first.getName()).isEqualTo("Max");
+                    assertThat(bean.second.getName()).isEqualTo("Annie");
+                });
+    }
+
+    @Test
+    void prototypeBeansAreReadAgainByDefault(@TempDir Path fixtures) throws Exception {
+        Path fixture = Files.writeString(fixtures.resolve("user.json"), "{\"name\":\"Max\"}");
+        this.contextRunner.withPropertyValues("fixture=" + fixture.toUri())
+                .withBean("prototypeBean", FixtureBean.class, FixtureBean::new,
+                        (definition) -> definition.setScope(BeanDefinition.SCOPE_PROTOTYPE))
+                .run((context) -> {
+                    context.getBean(FixtureBean.class);
+                    Files.writeString(fixture, "{\"name\":\"Annie\"}");
+                    assertThat(context.getBean(FixtureBean.class).user.getName()).isEqualTo("Annie");
+                });
+    }
+
+    @Test
+    void replayedTokensAreBounded(@TempDir Path fixtures) throws Exception {
+        Path fixture = Files.writeString(fixtures.resolve("user.json"), "{\"name\":\"Max\"}");
+        this.contextRunner.withPropertyValues("fixture=" + fixture.toUri(), "unmarshal.replay.enabled=true",
+                "unmarshal.replay.max-entries=0")
+                .withBean("prototypeBean", FixtureBean.class, FixtureBean::new,
+                        (definition) -> definition.setScope(BeanDefinition.SCOPE_PROTOTYPE))
+                .run((context) -> {
+                    context.getBean(FixtureBean.class);
+                    Files.writeString(fixture, "{\"name\":\"Annie\"}");
+                    assertThat(context.getBean(FixtureBean.class).user.getName()).isEqualTo("Annie");
+                });
+    }
+
+    @Test
+    void loadsAreRecordedAsStartupSteps() {
+        BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(1000);
+        this.contextRunner.withInitializer((context) -> context.setApplicationStartup(applicationStartup))
+                .withBean("parentBean", ParentBean.class).run((context) -> {
+                    StartupStep step = applicationStartup.getBufferedTimeline().getEvents().stream()
+                            .map(TimelineEvent::getStartupStep).filter((s) -> s.getName().equals("unmarshal.field"))
+                            .findFirst().orElseThrow();
+                    Map<String, String> tags = new HashMap<>();
+                    step.getTags().forEach((tag) -> tags.put(tag.getKey(), tag.getValue()));
+                    assertThat(tags).containsEntry("beanName", "parentBean")
+                            .containsEntry("location", "classpath:/testUser.json")
+                            .containsEntry("bytes", "18")
+                            .containsKeys("field", "resolveNanos", "loadNanos");
+                });
+    }
+
+    @Test
+    void loadsBeforeTheRegistryExistsArePublished() {
+        this.contextRunner.withBean("parentBean", ParentBean.class).run((context) -> {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            context.getBean(UnmarshalMetrics.class).bindTo(registry);
+            Tags tags = Tags.of("location", "classpath:/testUser.json", "outcome", "success");
+            assertThat(registry.get("unmarshal.load").tags(tags).timer().count()).isEqualTo(1);
+            assertThat(registry.get("unmarshal.load.bytes").tags(tags).counter().count()).isEqualTo(18);
+        });
+    }
+
     @Configuration(proxyBeanMethods = false)
     static class OverridingConfiguration {
 
@@ -144,6 +379,50 @@ class UnmarshalAnnotationAutoConfigurationTest {
     static class ChildBean extends ParentBean {
     }
 
+    static class NotJsonBean {
+
+        @Unmarshal("classpath:/notJson.txt")
+        User user;
+
+    }
+
+    static class SharedUserBean {
+
+        @Unmarshal(location = "classpath:/user-list.json", shared = true)
+        List<User> users;
+
+    }
+
+    static class SharedPointersBean {
+
+        @Unmarshal(location = "classpath:/user-list.json", pointer = "/0", shared = true)
+        User first;
+
+        @Unmarshal(location = "classpath:/user-list.json", pointer = "/1", shared = true)
+        User second;
+
+    }
+
+    static class GroupedFixtureBean {
+
+        @Unmarshal(location = "${fixtures}users.json", pointer = "/0")
+        User first;
+
+        @Unmarshal("${fixtures}user.json")
+        User user;
+
+        @Unmarshal(location = "${fixtures}users.json", pointer = "/1")
+        User second;
+
+    }
+
+    static class FixtureBean {
+
+        @Unmarshal("${fixture}")
+        User user;
+
+    }
+
     static class FinalFieldBean {
 
         @Unmarshal("classpath:/testUser.json")
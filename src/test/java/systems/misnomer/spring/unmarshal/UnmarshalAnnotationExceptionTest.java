@@ -1,6 +1,11 @@
 package systems.misnomer.spring.unmarshal;
 
 import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -180,6 +185,234 @@ class UnmarshalAnnotationExceptionTest {
                 .postProcessBeforeInitialization(bean, UnresolvablePlaceholderTest.class.getSimpleName()));
     }
 
+    private class CompactNonNumericTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - compact fields must hold numbers
+         */
+        @Unmarshal(location = "classpath:/json-list.json", compact = true)
+        List<String> names;
+    }
+
+    @Test
+    void compactNonNumericTest() {
+        CompactNonNumericTest bean = new CompactNonNumericTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, CompactNonNumericTest.class.getSimpleName()));
+    }
+
+    private class CompactStreamTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - streamed elements can't be compacted
+         */
+        @Unmarshal(location = "classpath:/ids.json", compact = true)
+        Stream<Integer> ids;
+    }
+
+    @Test
+    void compactStreamTest() {
+        CompactStreamTest bean = new CompactStreamTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, CompactStreamTest.class.getSimpleName()));
+    }
+
+    private class IndexedListTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - indexed fields must be Maps
+         */
+        @Unmarshal(location = "classpath:/user-list.json", indexBy = "name")
+        List<User> users;
+    }
+
+    @Test
+    void indexedListTest() {
+        IndexedListTest bean = new IndexedListTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, IndexedListTest.class.getSimpleName()));
+    }
+
+    private class InvalidPointerTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - pointers must start with a slash
+         */
+        @Unmarshal(location = "classpath:/settings.json", pointer = "owner")
+        User owner;
+    }
+
+    @Test
+    void invalidPointerTest() {
+        InvalidPointerTest bean = new InvalidPointerTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, InvalidPointerTest.class.getSimpleName()));
+    }
+
+    private class MissingPointerTest {
+        @Unmarshal(location = "classpath:/settings.json", pointer = "/missing")
+        User missing;
+
+        @Unmarshal(location = "classpath:/settings.json", pointer = "/owner")
+        User owner;
+    }
+
+    @Test
+    void missingPointerTest() {
+        MissingPointerTest bean = new MissingPointerTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, MissingPointerTest.class.getSimpleName()));
+    }
+
+    private class PatternStreamTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - patterns can't be streamed
+         */
+        @Unmarshal("classpath*:shards/*.json")
+        Stream<User> users;
+    }
+
+    @Test
+    void patternStreamTest() {
+        PatternStreamTest bean = new PatternStreamTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, PatternStreamTest.class.getSimpleName()));
+    }
+
+    private class PatternNoMatchTest {
+        @Unmarshal("classpath*:shards/*.missing")
+        List<User> users;
+    }
+
+    @Test
+    void patternNoMatchTest() {
+        PatternNoMatchTest bean = new PatternNoMatchTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, PatternNoMatchTest.class.getSimpleName()));
+    }
+
+    private class CanonicalStreamTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - streamed elements aren't canonicalized
+         */
+        @Unmarshal(location = "classpath:/user-list.json", canonicalize = UnmarshalCanonicalization.STRINGS)
+        Stream<User> users;
+    }
+
+    @Test
+    void canonicalStreamTest() {
+        CanonicalStreamTest bean = new CanonicalStreamTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, CanonicalStreamTest.class.getSimpleName()));
+    }
+
+    private class LazyNonSupplierTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - lazy fields must be Suppliers
+         */
+        @Unmarshal(location = "classpath:/testUser.json", lazy = true)
+        User user;
+    }
+
+    @Test
+    void lazyNonSupplierTest() {
+        LazyNonSupplierTest bean = new LazyNonSupplierTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, LazyNonSupplierTest.class.getSimpleName()));
+    }
+
+    private class LazyBadLocationTest {
+        /**
+         * Lazy fields still check that a required resource exists when the bean is created.
+         */
+        @Unmarshal(location = "classpath:/notFound.json", lazy = true)
+        Supplier<User> user;
+    }
+
+    @Test
+    void lazyBadLocationTest() {
+        LazyBadLocationTest bean = new LazyBadLocationTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, LazyBadLocationTest.class.getSimpleName()));
+    }
+
+    private class LazyNotJsonTest {
+        /**
+         * Lazy fields report parse failures from {@link Supplier#get()}.
+         */
+        @Unmarshal(location = "classpath:/notJson.txt", lazy = true)
+        Supplier<User> user;
+    }
+
+    @Test
+    void lazyNotJsonTest() {
+        LazyNotJsonTest bean = new LazyNotJsonTest();
+        unmarshalAnnotationPostProcessor.postProcessBeforeInitialization(bean,
+                LazyNotJsonTest.class.getSimpleName());
+        Assertions.assertThrows(UnmarshalException.class, bean.user::get);
+    }
+
+    private class StreamNotJsonTest {
+        /**
+         * Streaming fields report parse failures when they are consumed.
+         */
+        @Unmarshal(location = "classpath:/notJson.txt")
+        Stream<User> users;
+    }
+
+    @Test
+    void streamNotJsonTest() {
+        StreamNotJsonTest bean = new StreamNotJsonTest();
+        unmarshalAnnotationPostProcessor.postProcessBeforeInitialization(bean,
+                StreamNotJsonTest.class.getSimpleName());
+        Assertions.assertThrows(UnmarshalException.class, () -> bean.users.count());
+    }
+
+    private class UnavailableFormatTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - no MessagePack module on the classpath
+         */
+        @Unmarshal(location = "classpath:/testUser.json", format = UnmarshalFormat.MESSAGEPACK)
+        User user;
+    }
+
+    @Test
+    void unavailableFormatTest() {
+        UnavailableFormatTest bean = new UnavailableFormatTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, UnavailableFormatTest.class.getSimpleName()));
+    }
+
+    private class NdjsonValueTest {
+        /**
+         * This is an invalid usage of {@link Unmarshal} - NDJSON lines must be collected
+         */
+        @Unmarshal("classpath:/users.ndjson")
+        User user;
+    }
+
+    @Test
+    void ndjsonValueTest() {
+        NdjsonValueTest bean = new NdjsonValueTest();
+        Assertions.assertThrows(UnmarshalException.class, () -> unmarshalAnnotationPostProcessor
+                .postProcessBeforeInitialization(bean, NdjsonValueTest.class.getSimpleName()));
+    }
+
+    private class AsyncFailureTest {
+        @Unmarshal("classpath:/notJson.txt")
+        CompletableFuture<User> notJson;
+
+        @Unmarshal("classpath:/missing.json")
+        CompletableFuture<User> missing;
+    }
+
+    @Test
+    void asyncFailureTest() {
+        AsyncFailureTest bean = new AsyncFailureTest();
+        unmarshalAnnotationPostProcessor.postProcessBeforeInitialization(bean,
+                AsyncFailureTest.class.getSimpleName());
+        CompletionException notJson = Assertions.assertThrows(CompletionException.class, bean.notJson::join);
+        Assertions.assertInstanceOf(UnmarshalException.class, notJson.getCause());
+        CompletionException missing = Assertions.assertThrows(CompletionException.class, bean.missing::join);
+        Assertions.assertInstanceOf(UnmarshalException.class, missing.getCause());
+    }
+
     /**
      * this test exists to appease the code coverage gods. If I could make
      * {@link systems.misnomer.spring.unmarshal.UnmarshalAnnotationPostProcessor.unmarshal(JavaType,
@@ -1,10 +1,19 @@
 package systems.misnomer.spring.unmarshal;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.env.Environment;
@@ -12,6 +21,8 @@ import org.springframework.core.env.PropertyResolver;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.test.context.TestPropertySource;
 import com.fasterxml.jackson.databind.Module;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * provides examples of the use of the {@link Unmarshal} annotation as well as testing the library
@@ -81,6 +92,228 @@ class UnmarshalAnnotationTest {
     @Unmarshal(location = "classpath:/latin1User.json", charset = "ISO-8859-1")
     User latin1User;
 
+    /**
+     * Unicode encodings Jackson detects natively (UTF-8, UTF-16 and UTF-32) are parsed straight from
+     * the resource's bytes, byte order mark included.
+     */
+    @Unmarshal(location = "classpath:/utf16User.json", charset = "UTF-16")
+    User utf16User;
+
+    /**
+     * Binary formats are picked from the file extension when their Jackson dataformat module is on
+     * the classpath (here <code>jackson-dataformat-smile</code>, a <code>test</code> scope
+     * dependency).
+     */
+    @Unmarshal("classpath:/testUser.smile")
+    User smileUser;
+
+    /**
+     * CBOR works the same way, via <code>jackson-dataformat-cbor</code>.
+     */
+    @Unmarshal("classpath:/testUser.cbor")
+    User cborUser;
+
+    /**
+     * Without a telling extension, the format is detected from the resource's leading bytes.
+     */
+    @Unmarshal("classpath:/smileUserList")
+    List<User> detectedSmileUserList;
+
+    /**
+     * The format can also be declared explicitly.
+     */
+    @Unmarshal(location = "classpath:/smileUserList", format = UnmarshalFormat.SMILE)
+    Stream<User> declaredSmileUserStream;
+
+    /**
+     * Compressed resources are decompressed on the fly; the extension before <code>.gz</code> still
+     * selects the format.
+     */
+    @Unmarshal("classpath:/user-list.json.gz")
+    List<User> gzippedUserList;
+
+    /**
+     * Compact fields bind numeric arrays and objects to primitive-backed collections, without
+     * boxing each value.
+     */
+    @Unmarshal(location = "classpath:/ids.json", compact = true)
+    List<Integer> compactIds;
+
+    @Unmarshal(location = "classpath:/weights.json", compact = true)
+    Map<String, Double> compactWeights;
+
+    /**
+     * Declaring the compact type itself needs no <code>compact</code> attribute.
+     */
+    @Unmarshal("classpath:/ids.json")
+    UnmarshalCompact.LongList longIds;
+
+    /**
+     * Indexed fields bind an array straight into a map keyed by a property of each element.
+     */
+    @Unmarshal(location = "classpath:/user-list.json", indexBy = "name")
+    Map<String, User> usersByName;
+
+    /**
+     * Sorted maps are filled in key order; collection values make the index multi-valued.
+     */
+    @Unmarshal(location = "classpath:/user-list.json", indexBy = "/name")
+    NavigableMap<String, List<User>> sortedUsersByName;
+
+    /**
+     * A pointer binds one subtree of the resource; everything outside it is skipped by the parser.
+     * Fields that point into the same resource share a single parse.
+     */
+    @Unmarshal(location = "classpath:/settings.json", pointer = "/owner")
+    User owner;
+
+    /**
+     * Pointers can index into arrays.
+     */
+    @Unmarshal(location = "classpath:/settings.json", pointer = "/users/1")
+    User secondUser;
+
+    @Unmarshal(location = "classpath:/settings.json", pointer = "/limits")
+    Map<String, Integer> limits;
+
+    /**
+     * Streams of a pointed-to array read its elements one at a time.
+     */
+    @Unmarshal(location = "classpath:/settings.json", pointer = "/users")
+    Stream<User> streamedUsers;
+
+    /**
+     * Locations can be patterns. Collections receive the elements of every matching resource,
+     * in the order of the resources' URLs; the resources are parsed in parallel.
+     */
+    @Unmarshal("classpath*:shards/**/*.json")
+    List<User> shardedUsers;
+
+    /**
+     * Maps with String keys receive each matching resource keyed by its filename.
+     */
+    @Unmarshal("classpath:shards/*.json")
+    Map<String, List<User>> shardsByFilename;
+
+    /**
+     * Other types, or any type with <code>merge = MERGE</code>, bind each matching resource over
+     * the previous ones.
+     */
+    @Unmarshal(location = "classpath*:overlays/*.json", merge = UnmarshalMerge.MERGE)
+    Map<String, Integer> overlaidLimits;
+
+    record Shipment(String country, String status) {
+    }
+
+    /**
+     * Canonicalized fields share one instance among equal strings or, with <code>VALUES</code>,
+     * equal records.
+     */
+    @Unmarshal(location = "classpath:/shipments.json", canonicalize = UnmarshalCanonicalization.VALUES)
+    List<Shipment> shipments;
+
+    /**
+     * Off-heap fields keep the elements of a top-level array in memory-mapped storage and bind each
+     * element when it is read.
+     */
+    @Unmarshal("classpath:/user-list.json")
+    UnmarshalOffHeapList<User> offHeapUsers;
+
+    /**
+     * Lazy fields are declared as {@link Supplier}; the resource is read on the first {@code get()}
+     * and the same value is returned afterwards.
+     */
+    @Unmarshal(location = "classpath:/user-list.json", lazy = true)
+    Supplier<List<User>> lazyUserList;
+
+    /**
+     * {@link Stream} fields bind the elements of a top-level array one at a time as the stream is
+     * consumed. The resource is opened when the terminal operation starts.
+     */
+    @Unmarshal("classpath:/user-list.json")
+    Stream<User> userStream;
+
+    /**
+     * {@link Iterable} fields re-read the resource for every iterator.
+     */
+    @Unmarshal("classpath:/user-list.json")
+    Iterable<User> userIterable;
+
+    /**
+     * {@link Iterator} fields are single-use.
+     */
+    @Unmarshal("classpath:/json-list.json")
+    Iterator<String> stringIterator;
+
+    /**
+     * Reactor {@link Flux} fields are supported when Reactor is on the classpath; each subscription
+     * re-reads the resource.
+     */
+    @Unmarshal("classpath:/user-list.json")
+    Flux<User> userFlux;
+
+    @Test
+    void testStreaming() {
+        try (Stream<User> users = userStream) {
+            assertEquals(List.of("Max", "Annie"), users.map(User::getName).toList());
+        }
+
+        for (int pass = 0; pass < 2; pass++) {
+            List<String> names = new ArrayList<>();
+            userIterable.forEach(user -> names.add(user.getName()));
+            assertEquals(List.of("Max", "Annie"), names);
+        }
+
+        assertEquals("Brixton", stringIterator.next());
+        stringIterator.forEachRemaining(s -> assertNotNull(s));
+        assertFalse(stringIterator.hasNext());
+
+        assertEquals(List.of("Max", "Annie"), userFlux.map(User::getName).collectList().block());
+        assertEquals(2, userFlux.count().block());
+    }
+
+    /**
+     * {@link CompletableFuture} fields are set at once and completed by a load on the task
+     * executor, so the bean's creation doesn't wait for it.
+     */
+    @Unmarshal("classpath:/user-list.json")
+    CompletableFuture<List<User>> futureUsers;
+
+    /**
+     * Reactor {@link Mono} fields of a background load are supported when Reactor is on the
+     * classpath; a missing optional resource yields an empty <code>Mono</code>.
+     */
+    @Unmarshal("classpath:/testUser.json")
+    Mono<User> monoUser;
+
+    @Unmarshal(location = "classpath:/missing.json", required = false)
+    Mono<User> missingMonoUser;
+
+    /**
+     * Newline-delimited JSON (<code>.ndjson</code> or <code>.jsonl</code>) holds one value per line,
+     * collected into collection and array fields or streamed by streaming fields.
+     */
+    @Unmarshal("classpath:/users.ndjson")
+    List<User> ndjsonUsers;
+
+    @Unmarshal("classpath:/users.ndjson")
+    Stream<User> ndjsonUserStream;
+
+    @Test
+    void testNdjson() {
+        assertEquals(List.of("Max", "Annie"), ndjsonUsers.stream().map(User::getName).toList());
+        try (Stream<User> users = ndjsonUserStream) {
+            assertEquals(List.of("Max", "Annie"), users.map(User::getName).toList());
+        }
+    }
+
+    @Test
+    void testAsync() {
+        assertEquals(List.of("Max", "Annie"), futureUsers.join().stream().map(User::getName).toList());
+        assertEquals("Max", monoUser.map(User::getName).block());
+        assertNull(missingMonoUser.block());
+    }
+
     @Test
     void testUnmarshalling() {
         assertNotNull(myUser);
@@ -110,6 +343,69 @@ class UnmarshalAnnotationTest {
 
         assertNotNull(latin1User);
         assertEquals("Café", latin1User.getName());
+
+        assertNotNull(utf16User);
+        assertEquals("Zoë", utf16User.getName());
+
+        assertEquals("Max", smileUser.getName());
+        assertEquals("Max", cborUser.getName());
+        assertEquals(2, detectedSmileUserList.size());
+        assertEquals("Annie", detectedSmileUserList.get(1).getName());
+        assertEquals(2, declaredSmileUserStream.count());
+
+        assertEquals(2, gzippedUserList.size());
+        assertEquals("Annie", gzippedUserList.get(1).getName());
+
+        assertEquals(2, lazyUserList.get().size());
+        assertSame(lazyUserList.get(), lazyUserList.get());
+    }
+
+    @Test
+    void testCompact() {
+        assertEquals(List.of(3, 1, 4, 1, 5, 9, 2, 6), compactIds);
+        assertEquals(9, ((UnmarshalCompact.IntList) compactIds).getInt(5));
+
+        assertEquals(Map.of("apples", 0.5, "pears", 2.0, "plums", 1.25), compactWeights);
+        assertEquals(1.25, ((UnmarshalCompact.NumberMap<Double>) compactWeights).getDouble("plums", 0), 0);
+
+        assertEquals(31, longIds.longStream().sum());
+    }
+
+    @Test
+    void testIndexed() {
+        assertEquals(List.of("Max", "Annie"), List.copyOf(usersByName.keySet()));
+        assertEquals("Annie", usersByName.get("Annie").getName());
+        assertEquals("Annie", sortedUsersByName.firstKey());
+        assertEquals("Max", sortedUsersByName.get("Max").get(0).getName());
+    }
+
+    @Test
+    void testPointer() {
+        assertEquals("Max", owner.getName());
+        assertEquals("Max", secondUser.getName());
+        assertEquals(Map.of("requests", 100, "users", 10), limits);
+        assertEquals(List.of("Annie", "Max"), streamedUsers.map(User::getName).toList());
+    }
+
+    @Test
+    void testPattern() {
+        assertEquals(List.of("Zoe", "Annie", "Max"), shardedUsers.stream().map(User::getName).toList());
+        assertEquals(List.of("users-a.json", "users-b.json"), List.copyOf(shardsByFilename.keySet()));
+        assertEquals("Max", shardsByFilename.get("users-b.json").get(0).getName());
+        assertEquals(Map.of("requests", 100, "users", 25), overlaidLimits);
+    }
+
+    @Test
+    void testCanonicalized() {
+        assertSame(shipments.get(0), shipments.get(2));
+        assertSame(shipments.get(0).status(), shipments.get(1).status());
+    }
+
+    @Test
+    void testOffHeap() {
+        assertEquals(2, offHeapUsers.size());
+        assertEquals("Annie", offHeapUsers.get(1).getName());
+        assertEquals(List.of("Max", "Annie"), offHeapUsers.stream().map(User::getName).toList());
     }
 
 }
@@ -0,0 +1,115 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.aot.test.generate.TestGenerationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.aot.ApplicationContextAotGenerator;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.test.tools.CompileWithForkedClassLoader;
+import org.springframework.core.test.tools.TestCompiler;
+import org.springframework.javapoet.ClassName;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * tests the code and hints {@link UnmarshalAotContribution} generates ahead of time.
+ */
+class UnmarshalAotContributionTest {
+
+    @Import(UnmarshalAnnotationAutoConfiguration.class)
+    static class AotConfiguration {
+
+    }
+
+    static class AotBean {
+
+        @Unmarshal("classpath:/testUser.json")
+        User user;
+
+        @Unmarshal("classpath:/user-list.json")
+        private List<User> users;
+
+        @Unmarshal(location = "classpath:/user-list.json", lazy = true)
+        Supplier<List<User>> lazyUsers;
+
+        @Unmarshal(location = "classpath:/missing.json", required = false)
+        String missing = "default";
+
+    }
+
+    private TestGenerationContext processAheadOfTime(Consumer<ClassName> initializerName) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean(AotConfiguration.class);
+        context.registerBean("aotBean", AotBean.class);
+        TestGenerationContext generationContext = new TestGenerationContext();
+        initializerName.accept(new ApplicationContextAotGenerator().processAheadOfTime(context, generationContext));
+        generationContext.writeGeneratedContent();
+        return generationContext;
+    }
+
+    @Test
+    void hintsAreRegistered() {
+        RuntimeHints hints = processAheadOfTime(name -> {}).getRuntimeHints();
+        assertThat(RuntimeHintsPredicates.reflection().onField(AotBean.class, "users")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(User.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("testUser.json")).accepts(hints);
+        assertThat(RuntimeHintsPredicates.proxies().forInterfaces(Unmarshal.class)).accepts(hints);
+    }
+
+    /**
+     * Package-private beans need the generated code in the same runtime package, hence the forked
+     * class loader.
+     */
+    @Test
+    @CompileWithForkedClassLoader
+    void generatedCodeInjectsFields() {
+        AtomicReference<ClassName> initializerName = new AtomicReference<>();
+        TestGenerationContext generationContext = processAheadOfTime(initializerName::set);
+        TestCompiler.forSystem().with(generationContext).compile(compiled -> {
+            assertThat(compiled.getSourceFile(".*AotBean__Unmarshal"))
+                    .contains("instance.user = (User)")
+                    .contains("resolveAndSet(registeredBean, instance, UnmarshalAotContributionTest.AotBean.class, "
+                            + "\"users\")")
+                    .contains("return UnmarshalFieldValueResolver.injected(registeredBean, instance)");
+            GenericApplicationContext freshContext = new GenericApplicationContext();
+            @SuppressWarnings("unchecked")
+            ApplicationContextInitializer<GenericApplicationContext> initializer =
+                    compiled.getInstance(ApplicationContextInitializer.class, initializerName.get().reflectionName());
+            initializer.initialize(freshContext);
+            freshContext.refresh();
+            AotBean bean = freshContext.getBean(AotBean.class);
+            assertThat(bean.user.getName()).isEqualTo("Max");
+            assertThat(bean.users).extracting(User::getName).containsExactly("Max", "Annie");
+            assertThat(bean.lazyUsers.get()).hasSize(2);
+            assertThat(bean.missing).isEqualTo("default");
+            freshContext.close();
+        });
+    }
+
+    @Test
+    void marksOfFailedCreationsDontSkipLaterInstances() {
+        UnmarshalAnnotationPostProcessor postProcessor = new UnmarshalAnnotationPostProcessor(
+                new StandardEnvironment(), new DefaultResourceLoader(), new ObjectMapper());
+        AotBean injected = new AotBean();
+        postProcessor.markInjectedAheadOfTime("aotBean", injected);
+        assertThat(postProcessor.postProcessBeforeInitialization(injected, "aotBean")).isSameAs(injected);
+        assertThat(injected.user).isNull();
+
+        // a mark whose instance never reached initialization names only that instance
+        postProcessor.markInjectedAheadOfTime("aotBean", new AotBean());
+        AotBean later = new AotBean();
+        postProcessor.postProcessBeforeInitialization(later, "aotBean");
+        assertThat(later.user.getName()).isEqualTo("Max");
+    }
+
+}
@@ -0,0 +1,89 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * tests sharing equal values while binding with {@link UnmarshalCanonicalizer}.
+ */
+class UnmarshalCanonicalizerTest {
+
+    private static final String ORDERS = """
+            [
+              {"id": 1000000, "status": "OPEN", "address": {"country": "NZ", "city": "Wellington"}},
+              {"id": 1000000, "status": "OPEN", "address": {"country": "NZ", "city": "Wellington"}},
+              {"id": 2000000, "status": "CLOSED", "address": {"country": "NZ", "city": "Auckland"}}
+            ]""";
+
+    record Address(String country, String city) {
+    }
+
+    record Order(Long id, String status, Address address) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(UnmarshalCanonicalizer.module());
+
+    private <T> T read(TypeReference<T> type, UnmarshalCanonicalizer canonicalizer) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        if (canonicalizer != null) {
+            reader = reader.withAttribute(UnmarshalCanonicalizer.ATTRIBUTE, canonicalizer);
+        }
+        return reader.readValue(ORDERS);
+    }
+
+    @Test
+    void stringsAreShared() throws IOException {
+        UnmarshalCanonicalizer canonicalizer = new UnmarshalCanonicalizer(UnmarshalCanonicalization.STRINGS, 100);
+        List<Order> orders = read(new TypeReference<>() {
+        }, canonicalizer);
+        assertThat(orders.get(1).status()).isSameAs(orders.get(0).status());
+        assertThat(orders.get(2).address().country()).isSameAs(orders.get(0).address().country());
+        assertThat(orders.get(1).address()).isNotSameAs(orders.get(0).address());
+        assertThat(orders.get(1).id()).isNotSameAs(orders.get(0).id());
+        assertThat(canonicalizer.getDuplicates()).isEqualTo(4);
+        assertThat(canonicalizer.getSavedBytes()).isPositive();
+    }
+
+    @Test
+    void recordsAndNumbersAreSharedAsValues() throws IOException {
+        UnmarshalCanonicalizer canonicalizer = new UnmarshalCanonicalizer(UnmarshalCanonicalization.VALUES, 100);
+        List<Order> orders = read(new TypeReference<>() {
+        }, canonicalizer);
+        assertThat(orders.get(1)).isSameAs(orders.get(0));
+        assertThat(orders.get(2).address().country()).isSameAs(orders.get(0).address().country());
+    }
+
+    @Test
+    void untypedValuesAreSharedInPlace() throws IOException {
+        UnmarshalCanonicalizer canonicalizer = new UnmarshalCanonicalizer(UnmarshalCanonicalization.STRINGS, 100);
+        List<Map<String, Object>> orders = read(new TypeReference<>() {
+        }, canonicalizer);
+        Object first = ((Map<?, ?>) orders.get(0).get("address")).get("country");
+        Object third = ((Map<?, ?>) orders.get(2).get("address")).get("country");
+        assertThat(third).isSameAs(first);
+    }
+
+    @Test
+    void theTableIsBounded() throws IOException {
+        UnmarshalCanonicalizer canonicalizer = new UnmarshalCanonicalizer(UnmarshalCanonicalization.STRINGS, 1);
+        List<Order> orders = read(new TypeReference<>() {
+        }, canonicalizer);
+        assertThat(canonicalizer.size()).isEqualTo(1);
+        assertThat(orders.get(1).status()).isSameAs(orders.get(0).status());
+        assertThat(orders.get(1).address().country()).isNotSameAs(orders.get(0).address().country());
+    }
+
+    @Test
+    void valuesAreUntouchedWithoutACanonicalizer() throws IOException {
+        List<Order> orders = read(new TypeReference<>() {
+        }, null);
+        assertThat(orders.get(1).status()).isEqualTo(orders.get(0).status()).isNotSameAs(orders.get(0).status());
+    }
+
+}
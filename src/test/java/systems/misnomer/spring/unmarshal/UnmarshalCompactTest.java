@@ -0,0 +1,100 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * tests binding and reading the primitive-backed collections of {@link UnmarshalCompact}.
+ */
+class UnmarshalCompactTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TypeFactory typeFactory = objectMapper.getTypeFactory();
+
+    @Test
+    void listsGrowPastTheirInitialCapacityAndAreTrimmed() throws Exception {
+        String json = IntStream.range(0, 1000).mapToObj(Integer::toString).collect(Collectors.joining(",", "[", "]"));
+        UnmarshalCompact.IntList ints = objectMapper.readValue(json, UnmarshalCompact.IntList.class);
+        assertThat(ints).hasSize(1000).isEqualTo(IntStream.range(0, 1000).boxed().toList());
+        assertThat(ints.toIntArray()).hasSize(1000);
+        assertThat(ints.getLong(999)).isEqualTo(999L);
+        assertThatThrownBy(() -> ints.getInt(1000)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> ints.add(1)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void elementsAreCoercedLikePrimitiveArrays() throws Exception {
+        UnmarshalCompact.LongList longs = objectMapper.readValue("[1, \"2\", 9999999999, null]",
+                UnmarshalCompact.LongList.class);
+        assertThat(longs.toLongArray()).containsExactly(1, 2, 9_999_999_999L, 0);
+        UnmarshalCompact.DoubleList doubles = objectMapper.readValue("[1, 2.5, \"1e3\"]",
+                UnmarshalCompact.DoubleList.class);
+        assertThat(doubles.toDoubleArray()).containsExactly(1, 2.5, 1000);
+
+        ObjectMapper strict = objectMapper.copy().enable(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES);
+        assertThatThrownBy(() -> strict.readValue("[1, null]", UnmarshalCompact.IntList.class))
+                .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("[9999999999]", UnmarshalCompact.IntList.class))
+                .hasMessageContaining("out of range");
+        assertThatThrownBy(() -> objectMapper.readValue("{}", UnmarshalCompact.IntList.class))
+                .isInstanceOf(MismatchedInputException.class);
+    }
+
+    @Test
+    void mapsLookUpKeysAndKeepTheLastDuplicate() throws Exception {
+        String json = IntStream.range(0, 100).mapToObj(i -> "\"k" + i + "\":" + i)
+                .collect(Collectors.joining(",", "{", ",\"k7\":-7}"));
+        UnmarshalCompact.NumberMap<Long> map =
+                objectMapper.readValue(json, new TypeReference<UnmarshalCompact.NumberMap<Long>>() {
+                });
+        assertThat(map).hasSize(100).containsEntry("k0", 0L).containsEntry("k99", 99L).containsEntry("k7", -7L);
+        assertThat(map.get("missing")).isNull();
+        assertThat(map.get(42)).isNull();
+        assertThat(map.getLong("k7", 0)).isEqualTo(-7);
+        assertThat(map.getDouble("missing", 1.5)).isEqualTo(1.5);
+        assertThat(map.keyList()).hasSize(100).startsWith("k0", "k1");
+        assertThat(map.valueList()).isInstanceOf(UnmarshalCompact.LongList.class);
+        assertThat(map.entrySet().iterator().next()).isEqualTo(Map.entry("k0", 0L));
+        assertThatThrownBy(() -> map.put("k0", 1L)).isInstanceOf(UnsupportedOperationException.class);
+
+        assertThat(objectMapper.readValue("{}", new TypeReference<UnmarshalCompact.NumberMap<Integer>>() {
+        })).isEmpty();
+    }
+
+    @Test
+    void compactTypesReplaceNumericCollections() {
+        assertThat(compactType(new TypeReference<List<Integer>>() {
+        })).isEqualTo(typeFactory.constructType(UnmarshalCompact.IntList.class));
+        assertThat(compactType(new TypeReference<Collection<Double>>() {
+        })).isEqualTo(typeFactory.constructType(UnmarshalCompact.DoubleList.class));
+        assertThat(compactType(new TypeReference<Map<String, Long>>() {
+        })).isEqualTo(typeFactory.constructParametricType(UnmarshalCompact.NumberMap.class, Long.class));
+        assertThat(compactType(new TypeReference<long[]>() {
+        })).isEqualTo(typeFactory.constructType(long[].class));
+
+        assertThat(compactType(new TypeReference<List<String>>() {
+        })).isNull();
+        assertThat(compactType(new TypeReference<Map<Integer, Long>>() {
+        })).isNull();
+        assertThat(compactType(new TypeReference<java.util.ArrayList<Integer>>() {
+        })).isNull();
+    }
+
+    private JavaType compactType(TypeReference<?> type) {
+        return UnmarshalCompact.compactType(typeFactory, typeFactory.constructType(type));
+    }
+
+}
@@ -0,0 +1,111 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * tests indexing arrays into maps with {@link UnmarshalIndex}.
+ */
+class UnmarshalIndexTest {
+
+    private static final String ACCOUNTS = """
+            [
+              {"id": 3, "owner": {"name": "Max"}},
+              {"id": 1, "owner": {"name": "Annie"}},
+              {"id": 2, "owner": {"name": "Max"}}
+            ]""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void keysAreBoundToTheKeyTypeInArrayOrder() throws IOException {
+        Map<Object, Object> index = index(ACCOUNTS, "id", UnmarshalDuplicateKeys.FAIL,
+                new TypeReference<Map<Long, Map<String, Object>>>() {
+                });
+        assertThat(index).isInstanceOf(LinkedHashMap.class).containsOnlyKeys(3L, 1L, 2L);
+        assertThat(index.keySet()).containsExactly(3L, 1L, 2L);
+        assertThat(index.get(1L)).isEqualTo(Map.of("id", 1, "owner", Map.of("name", "Annie")));
+    }
+
+    @Test
+    void sortedAndConcreteMapsAreRespected() throws IOException {
+        assertThat(index(ACCOUNTS, "id", UnmarshalDuplicateKeys.FAIL,
+                new TypeReference<SortedMap<Integer, Object>>() {
+                }).keySet()).containsExactly(1, 2, 3);
+        assertThat(index(ACCOUNTS, "id", UnmarshalDuplicateKeys.FAIL, new TypeReference<TreeMap<String, Object>>() {
+        })).isInstanceOf(TreeMap.class).containsOnlyKeys("1", "2", "3");
+    }
+
+    @Test
+    void pointersReachNestedKeysAndCollectionsCollectDuplicates() throws IOException {
+        Map<Object, Object> index = index(ACCOUNTS, "/owner/name", UnmarshalDuplicateKeys.FAIL,
+                new TypeReference<Map<String, Set<Map<String, Object>>>>() {
+                });
+        assertThat(index.keySet()).containsExactly("Max", "Annie");
+        assertThat(index.get("Max")).isInstanceOf(LinkedHashSet.class).asInstanceOf(
+                InstanceOfAssertFactories.COLLECTION).hasSize(2);
+        assertThat(index(ACCOUNTS, "/owner/name", UnmarshalDuplicateKeys.FAIL,
+                new TypeReference<Map<String, List<Object>>>() {
+                }).get("Annie")).isInstanceOf(List.class);
+    }
+
+    @Test
+    void duplicateKeysFollowThePolicy() throws IOException {
+        TypeReference<Map<String, Map<String, Object>>> type = new TypeReference<>() {
+        };
+        assertThatThrownBy(() -> index(ACCOUNTS, "/owner/name", UnmarshalDuplicateKeys.FAIL, type))
+                .isInstanceOf(UnmarshalException.class).hasMessageContaining("Duplicate key 'Max' at element 2");
+        assertThat(index(ACCOUNTS, "/owner/name", UnmarshalDuplicateKeys.KEEP_FIRST, type).get("Max"))
+                .isEqualTo(Map.of("id", 3, "owner", Map.of("name", "Max")));
+        assertThat(index(ACCOUNTS, "/owner/name", UnmarshalDuplicateKeys.KEEP_LAST, type).get("Max"))
+                .isEqualTo(Map.of("id", 2, "owner", Map.of("name", "Max")));
+    }
+
+    @Test
+    void elementsWithoutKeysFail() {
+        TypeReference<Map<String, Object>> type = new TypeReference<>() {
+        };
+        assertThatThrownBy(() -> index("[{\"id\": 1}, {\"name\": 2}]", "id", UnmarshalDuplicateKeys.FAIL, type))
+                .isInstanceOf(UnmarshalException.class).hasMessageContaining("Element 1 has no value at '/id'");
+        assertThatThrownBy(() -> index("[{\"id\": null}]", "id", UnmarshalDuplicateKeys.FAIL, type))
+                .isInstanceOf(UnmarshalException.class);
+    }
+
+    @Test
+    void onlyInstantiableMapsCanBeIndexed() {
+        assertThatThrownBy(() -> UnmarshalIndex.of("id", UnmarshalDuplicateKeys.FAIL,
+                objectMapper.constructType(new TypeReference<List<Object>>() {
+                }))).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("Map");
+        assertThatThrownBy(() -> UnmarshalIndex.of("id", UnmarshalDuplicateKeys.FAIL,
+                objectMapper.constructType(new TypeReference<EnumMap<UnmarshalDuplicateKeys, Object>>() {
+                }))).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("instantiate");
+        assertThat(UnmarshalIndex.of("/id", UnmarshalDuplicateKeys.FAIL, objectMapper.constructType(Map.class)))
+                .isEqualTo(UnmarshalIndex.of("id", UnmarshalDuplicateKeys.FAIL, objectMapper.constructType(Map.class)))
+                .isNotEqualTo(UnmarshalIndex.of("id", UnmarshalDuplicateKeys.KEEP_LAST,
+                        objectMapper.constructType(Map.class)));
+    }
+
+    private Map<Object, Object> index(String json, String indexBy, UnmarshalDuplicateKeys duplicateKeys,
+            TypeReference<?> mapType) throws IOException {
+        UnmarshalIndex index = UnmarshalIndex.of(indexBy, duplicateKeys, objectMapper.constructType(mapType));
+        try (MappingIterator<TokenBuffer> elements = objectMapper.readerFor(TokenBuffer.class).readValues(json)) {
+            return index.read(elements, objectMapper.reader());
+        }
+    }
+
+}
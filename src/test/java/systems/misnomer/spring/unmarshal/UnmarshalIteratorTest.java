@@ -0,0 +1,63 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * tests that an {@link UnmarshalIterator} closes its stream however reading ends.
+ */
+class UnmarshalIteratorTest {
+
+    private static final class TrackedStream extends ByteArrayInputStream {
+
+        boolean closed;
+
+        TrackedStream(String content) {
+            super(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+    }
+
+    private static UnmarshalIterator<User> iterator(TrackedStream in) throws IOException {
+        return new UnmarshalIterator<>(new ObjectMapper().readerFor(User.class).readValues(in), "users");
+    }
+
+    @Test
+    void streamIsClosedAfterTheLastElement() throws IOException {
+        TrackedStream in = new TrackedStream("[{\"name\":\"Max\"}]");
+        UnmarshalIterator<User> users = iterator(in);
+        assertThat(users.next().getName()).isEqualTo("Max");
+        assertThat(in.closed).isFalse();
+        assertThat(users.hasNext()).isFalse();
+        assertThat(in.closed).isTrue();
+    }
+
+    @Test
+    void streamIsClosedWhenReadingFails() throws IOException {
+        TrackedStream in = new TrackedStream("[{\"name\":\"Max\"} x");
+        UnmarshalIterator<User> users = iterator(in);
+        assertThat(users.next().getName()).isEqualTo("Max");
+        assertThatThrownBy(users::hasNext).isInstanceOf(UnmarshalException.class).hasMessageContaining("users");
+        assertThat(in.closed).isTrue();
+    }
+
+    @Test
+    void streamIsClosedWhenBindingFails() throws IOException {
+        TrackedStream in = new TrackedStream("[{\"name\":\"Max\"}, {\"name\": }]");
+        UnmarshalIterator<User> users = iterator(in);
+        assertThat(users.next().getName()).isEqualTo("Max");
+        assertThatThrownBy(users::next).isInstanceOf(UnmarshalException.class);
+        assertThat(in.closed).isTrue();
+    }
+
+}
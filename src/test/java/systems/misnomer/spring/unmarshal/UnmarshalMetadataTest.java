@@ -0,0 +1,70 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * tests the per-class {@link UnmarshalMetadata} cache in {@link UnmarshalAnnotationPostProcessor}.
+ */
+class UnmarshalMetadataTest {
+
+    private final UnmarshalAnnotationPostProcessor postProcessor = new UnmarshalAnnotationPostProcessor(
+            new StandardEnvironment(), new DefaultResourceLoader(), new ObjectMapper());
+
+    static class AnnotatedBean {
+
+        @Unmarshal("classpath:/testUser.json")
+        User user;
+
+        @Unmarshal(location = "classpath:/latin1User.json", charset = "ISO-8859-1")
+        User latin1User;
+
+        String notAnnotated;
+
+    }
+
+    static class PlainBean {
+
+        String value;
+
+    }
+
+    @Test
+    void metadataIsComputedOncePerClass() {
+        UnmarshalMetadata metadata = postProcessor.findMetadata(AnnotatedBean.class);
+        assertThat(metadata.getElements()).hasSize(2);
+        assertThat(postProcessor.findMetadata(AnnotatedBean.class)).isSameAs(metadata);
+    }
+
+    @Test
+    void elementsArePreResolved() {
+        UnmarshalElement latin1 = postProcessor.findMetadata(AnnotatedBean.class).getElements().stream()
+                .filter(e -> e.getField().getName().equals("latin1User")).findFirst().orElseThrow();
+        assertThat(latin1.getLocation()).isEqualTo("classpath:/latin1User.json");
+        assertThat(latin1.getCharset().name()).isEqualTo("ISO-8859-1");
+        assertThat(latin1.getJavaType().getRawClass()).isEqualTo(User.class);
+        assertThat(latin1.getReader().getValueType()).isEqualTo(latin1.getJavaType());
+    }
+
+    @Test
+    void classesWithoutAnnotatedFieldsShareEmptyMetadata() {
+        assertThat(postProcessor.findMetadata(PlainBean.class)).isSameAs(UnmarshalMetadata.EMPTY);
+        assertThat(postProcessor.findMetadata(String.class)).isSameAs(UnmarshalMetadata.EMPTY);
+    }
+
+    @Test
+    void cachedMetadataInjectsEveryInstance() {
+        AnnotatedBean first = new AnnotatedBean();
+        AnnotatedBean second = new AnnotatedBean();
+        postProcessor.postProcessBeforeInitialization(first, "first");
+        postProcessor.postProcessBeforeInitialization(second, "second");
+        assertThat(first.user.getName()).isEqualTo("Max");
+        assertThat(second.user.getName()).isEqualTo("Max");
+        assertThat(second.latin1User.getName()).isEqualTo("Café");
+        assertThat(first.user).isNotSameAs(second.user);
+    }
+
+}
@@ -0,0 +1,100 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * tests splitting, parsing and collecting newline-delimited JSON with {@link UnmarshalNdjson}.
+ */
+class UnmarshalNdjsonTest {
+
+    private static final int LINES = 60_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    /**
+     * writes enough lines to be split into several chunks, with blank lines and line breaks of
+     * both kinds in between.
+     */
+    private Path writeUsers(String brokenLine) throws IOException {
+        Path file = directory.resolve("users.ndjson");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < LINES; i++) {
+                out.write(i == LINES / 2 && brokenLine != null ? brokenLine
+                        : "{\"name\":\"user-" + i + "\",\"note\":\"" + "x".repeat(i % 64) + "\"}");
+                out.write((i % 3 == 0) ? "\r\n" : (i % 5 == 0) ? "\n\n" : "\n");
+            }
+        }
+        return file;
+    }
+
+    private List<Object> read(Path file, Class<?> type) throws IOException {
+        return UnmarshalNdjson.read(objectMapper.readerFor(type), file, Files.size(file));
+    }
+
+    @Test
+    void chunksAreParsedInLineOrder() throws IOException {
+        Path file = writeUsers(null);
+        assertThat(Files.size(file)).isGreaterThan(2 << 20);
+        List<Object> values = read(file, Map.class);
+        assertThat(values).hasSize(LINES);
+        for (int i = 0; i < LINES; i += 997) {
+            assertThat(values.get(i)).asInstanceOf(InstanceOfAssertFactories.MAP)
+                    .containsEntry("name", "user-" + i);
+        }
+    }
+
+    @Test
+    void smallAndEmptyFilesAreRead() throws IOException {
+        Path file = Files.writeString(directory.resolve("small.jsonl"), "1\n2\n\n3");
+        assertThat(read(file, Integer.class)).containsExactly(1, 2, 3);
+        Path empty = Files.writeString(directory.resolve("empty.jsonl"), "");
+        assertThat(read(empty, Integer.class)).isEmpty();
+    }
+
+    @Test
+    void linesHoldingArraysAreNotUnwrapped() throws IOException {
+        Path file = Files.writeString(directory.resolve("arrays.jsonl"), "[1,2]\n[3,4]\n[5,6]\n");
+        List<Object> values = read(file, int[].class);
+        assertThat(UnmarshalNdjson.collect(values, objectMapper.constructType(int[][].class)))
+                .isEqualTo(new int[][] {{1, 2}, {3, 4}, {5, 6}});
+    }
+
+    @Test
+    void malformedLinesFailWithTheirChunk() throws IOException {
+        Path file = writeUsers("{\"name\":");
+        assertThatThrownBy(() -> read(file, Map.class)).isInstanceOf(IOException.class)
+                .hasMessageContaining("between bytes");
+    }
+
+    @Test
+    void valuesAreCollectedIntoTheFieldsType() {
+        JavaType sortedSet = objectMapper.constructType(new TypeReference<SortedSet<Integer>>() {
+        });
+        assertThat(UnmarshalNdjson.collect(List.of(3, 1, 2), sortedSet)).isInstanceOf(TreeSet.class)
+                .isEqualTo(new TreeSet<>(List.of(1, 2, 3)));
+        assertThat(UnmarshalNdjson.collect(List.of(3, 1), objectMapper.constructType(int[].class)))
+                .isEqualTo(new int[] {3, 1});
+        assertThat(UnmarshalNdjson.isCollectable(objectMapper.constructType(Map.class))).isFalse();
+        assertThat(UnmarshalNdjson.isCollectable(objectMapper.constructType(User.class))).isFalse();
+    }
+
+}
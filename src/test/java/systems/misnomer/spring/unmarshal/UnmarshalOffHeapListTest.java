@@ -0,0 +1,71 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * tests writing elements to and reading them back from an {@link UnmarshalOffHeapList}.
+ */
+class UnmarshalOffHeapListTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void elementsSpanSeveralRegionsAndTheFileIsDeleted() throws IOException {
+        String json = IntStream.range(0, 2000).mapToObj(i -> "{\"name\":\"user-" + i + "\"}")
+                .collect(Collectors.joining(",", "[", "]"));
+        UnmarshalOffHeapList<User> users = write(json, smileMapper, 1024);
+        assertThat(users).hasSize(2000);
+        assertThat(users.get(0).getName()).isEqualTo("user-0");
+        assertThat(users.get(1999).getName()).isEqualTo("user-1999");
+        assertThat(users.stream().map(User::getName).distinct().count()).isEqualTo(2000);
+        assertThat(users.getStoredBytes()).isPositive();
+        assertThatThrownBy(() -> users.get(2000)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> users.add(new User())).isInstanceOf(UnsupportedOperationException.class);
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void recordsAreJsonWithoutSmile() throws IOException {
+        UnmarshalOffHeapList<User> users = write("[{\"name\":\"Max\"}, {\"name\":\"Annie\"}]", objectMapper, 1 << 20);
+        assertThat(users).extracting(User::getName).containsExactly("Max", "Annie");
+        assertThat(users.getStoredBytes()).isEqualTo("{\"name\":\"Max\"}{\"name\":\"Annie\"}".length());
+        assertThat(write("[]", objectMapper, 1 << 20)).isEmpty();
+    }
+
+    @Test
+    void elementsThatDontBindFailWhileWriting() {
+        assertThatThrownBy(() -> write("[{\"name\":\"Max\"}, [1, 2]]", objectMapper, 1 << 20))
+                .isInstanceOf(MismatchedInputException.class);
+        assertThatThrownBy(() -> write("[{\"name\":\"" + "x".repeat(100) + "\"}]", objectMapper, 64))
+                .hasMessageContaining("too large");
+    }
+
+    private UnmarshalOffHeapList<User> write(String json, ObjectMapper recordMapper, long maxRegionSize)
+            throws IOException {
+        try (MappingIterator<TokenBuffer> elements = objectMapper.readerFor(TokenBuffer.class).readValues(json)) {
+            return UnmarshalOffHeapList.write(elements, recordMapper.getFactory(), recordMapper.readerFor(User.class),
+                    directory, maxRegionSize);
+        }
+    }
+
+}
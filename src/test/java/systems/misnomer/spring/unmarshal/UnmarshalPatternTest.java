@@ -0,0 +1,98 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * tests combining the resources of a location pattern with {@link UnmarshalPattern}.
+ */
+class UnmarshalPatternTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void patternsAreRecognized() {
+        assertThat(UnmarshalPattern.isPattern("classpath*:data/users.json")).isTrue();
+        assertThat(UnmarshalPattern.isPattern("classpath:data/*.json")).isTrue();
+        assertThat(UnmarshalPattern.isPattern("file:/data/{a,b}.json")).isTrue();
+        assertThat(UnmarshalPattern.isPattern("/data/**/users.json")).isTrue();
+        assertThat(UnmarshalPattern.isPattern("classpath:data/users.json")).isFalse();
+        assertThat(UnmarshalPattern.isPattern("https://example.com/users.json?page=*")).isFalse();
+    }
+
+    @Test
+    void resourcesAreSortedAndConcatenated() throws IOException {
+        write("b.json", "[3, 4]");
+        write("a.json", "[5, 1]");
+        write("c.txt", "[9]");
+        Object value = read(UnmarshalMerge.AUTO, new TypeReference<SortedSet<Integer>>() {
+        }, "*.json");
+        assertThat(value).isInstanceOf(TreeSet.class).asInstanceOf(InstanceOfAssertFactories.ITERABLE)
+                .containsExactly(1, 3, 4, 5);
+        assertThat(read(UnmarshalMerge.CONCATENATE, new TypeReference<List<Integer>>() {
+        }, "*.json")).isEqualTo(List.of(5, 1, 3, 4));
+    }
+
+    @Test
+    void resourcesAreKeyedByFilenameOrMerged() throws IOException {
+        write("b.json", "{\"x\": 2, \"y\": 2}");
+        write("a.json", "{\"x\": 1}");
+        Object byFilename = read(UnmarshalMerge.AUTO, new TypeReference<Map<String, Map<String, Integer>>>() {
+        }, "*.json");
+        assertThat(byFilename).isEqualTo(Map.of("a.json", Map.of("x", 1), "b.json", Map.of("x", 2, "y", 2)));
+        assertThat(read(UnmarshalMerge.MERGE, new TypeReference<Map<String, Integer>>() {
+        }, "*.json")).isEqualTo(Map.of("x", 2, "y", 2));
+    }
+
+    @Test
+    void repeatedFilenamesFail() throws IOException {
+        Files.createDirectories(directory.resolve("eu"));
+        write("users.json", "1");
+        write("eu/users.json", "2");
+        assertThatThrownBy(() -> read(UnmarshalMerge.BY_FILENAME, new TypeReference<Map<String, Integer>>() {
+        }, "**/users.json")).isInstanceOf(UnmarshalException.class).hasMessageContaining("users.json");
+    }
+
+    @Test
+    void strategiesMustSuitTheType() {
+        JavaType map = objectMapper.constructType(new TypeReference<Map<Integer, Object>>() {
+        });
+        assertThatThrownBy(() -> UnmarshalPattern.of(UnmarshalMerge.CONCATENATE, map))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UnmarshalPattern.of(UnmarshalMerge.BY_FILENAME, map))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(UnmarshalPattern.of(UnmarshalMerge.AUTO, map))
+                .isEqualTo(UnmarshalPattern.of(UnmarshalMerge.MERGE, objectMapper.constructType(Object.class)));
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.writeString(directory.resolve(name), content);
+    }
+
+    private Object read(UnmarshalMerge merge, TypeReference<?> type, String pattern) throws IOException {
+        JavaType javaType = objectMapper.constructType(type);
+        UnmarshalPattern.Matches matches = UnmarshalPattern.resolve(new PathMatchingResourcePatternResolver(),
+                new FileSystemResource(directory).getURL() + pattern);
+        return UnmarshalPattern.of(merge, javaType).read(matches, objectMapper.readerFor(javaType),
+                (reader, resource) -> reader.readValue(resource.getInputStream()));
+    }
+
+}
@@ -0,0 +1,68 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+class UnmarshalPointersTest {
+
+    private static final String DOCUMENT = "{\"a\":{\"b\":[10,{\"c\":\"x\"},30]},\"d\":true,\"e\":{\"f\":1}}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private Map<JsonPointer, TokenBuffer> extract(String document, String... pointers) throws IOException {
+        try (JsonParser parser = mapper.createParser(document)) {
+            return UnmarshalPointers.extract(parser, List.of(pointers).stream().map(JsonPointer::compile).toList());
+        }
+    }
+
+    private Object bind(Map<JsonPointer, TokenBuffer> subtrees, String pointer) throws IOException {
+        try (JsonParser parser = subtrees.get(JsonPointer.compile(pointer)).asParser()) {
+            return mapper.readValue(parser, Object.class);
+        }
+    }
+
+    @Test
+    void extractsEachPointer() throws IOException {
+        Map<JsonPointer, TokenBuffer> subtrees = extract(DOCUMENT, "/a/b/1", "/d", "/e");
+        assertEquals(3, subtrees.size());
+        assertEquals(Map.of("c", "x"), bind(subtrees, "/a/b/1"));
+        assertEquals(true, bind(subtrees, "/d"));
+        assertEquals(Map.of("f", 1), bind(subtrees, "/e"));
+    }
+
+    @Test
+    void extractsArrayElementsAndWholeArrays() throws IOException {
+        Map<JsonPointer, TokenBuffer> subtrees = extract(DOCUMENT, "/a/b/2", "/a/b");
+        assertEquals(List.of(10, Map.of("c", "x"), 30), bind(subtrees, "/a/b"));
+        // nested inside /a/b, which is included whole
+        assertNull(subtrees.get(JsonPointer.compile("/a/b/2")));
+    }
+
+    @Test
+    void omitsMissingPointers() throws IOException {
+        Map<JsonPointer, TokenBuffer> subtrees = extract(DOCUMENT, "/missing", "/a/b/7", "/d");
+        assertEquals(1, subtrees.size());
+        assertEquals(true, bind(subtrees, "/d"));
+    }
+
+    @Test
+    void stopsOnceEveryPointerIsFound() throws IOException {
+        // the document is truncated after the pointed-to value, so reading on would fail
+        try (JsonParser parser = mapper.createParser("{\"a\":1,\"b\":[")) {
+            Map<JsonPointer, TokenBuffer> subtrees = UnmarshalPointers.extract(parser,
+                    List.of(JsonPointer.compile("/a")));
+            assertEquals(1, subtrees.size());
+            assertEquals(JsonToken.VALUE_NUMBER_INT, subtrees.get(JsonPointer.compile("/a")).firstToken());
+        }
+    }
+
+}
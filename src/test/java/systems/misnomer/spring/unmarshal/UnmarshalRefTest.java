@@ -0,0 +1,113 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * tests reloading {@link UnmarshalRef} fields when their files change.
+ */
+class UnmarshalRefTest {
+
+    @TempDir
+    Path dir;
+
+    private ApplicationContextRunner contextRunner() {
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(UnmarshalAnnotationAutoConfiguration.class))
+                .withPropertyValues("test.dir=" + dir.toUri(), "unmarshal.reload.debounce=20ms")
+                .withBean("refBean", RefBean.class);
+    }
+
+    static class RefBean {
+
+        @Unmarshal("${test.dir}user.json")
+        UnmarshalRef<User> user;
+
+    }
+
+    static class ClasspathRefBean {
+
+        @Unmarshal("classpath:/testUser.json")
+        UnmarshalRef<User> user;
+
+    }
+
+    private void write(String json) throws IOException {
+        Path temp = Files.writeString(dir.resolve("user.json.tmp"), json);
+        Files.move(temp, dir.resolve("user.json"), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    void changedFileIsReloaded() throws IOException {
+        write("{\"name\":\"Max\"}");
+        contextRunner().run((context) -> {
+            UnmarshalRef<User> ref = context.getBean(RefBean.class).user;
+            assertThat(ref.get().getName()).isEqualTo("Max");
+
+            write("{\"name\":\"Annie\"}");
+            await().atMost(Duration.ofSeconds(10)).until(() -> "Annie".equals(ref.get().getName()));
+            assertThat(ref.getLastReloadFailure()).isNull();
+        });
+    }
+
+    @Test
+    void failedReloadKeepsTheLastGoodValue() throws IOException {
+        write("{\"name\":\"Max\"}");
+        contextRunner().run((context) -> {
+            UnmarshalRef<User> ref = context.getBean(RefBean.class).user;
+
+            write("{\"name\":");
+            await().atMost(Duration.ofSeconds(10)).until(() -> ref.getLastReloadFailure() != null);
+            assertThat(ref.getLastReloadFailure()).isInstanceOf(UnmarshalException.class);
+            assertThat(ref.get().getName()).isEqualTo("Max");
+
+            write("{\"name\":\"Sam\"}");
+            await().atMost(Duration.ofSeconds(10)).until(() -> "Sam".equals(ref.get().getName()));
+            assertThat(ref.getLastReloadFailure()).isNull();
+        });
+    }
+
+    @Test
+    void watchesOfDiscardedPrototypesAreDropped() throws IOException {
+        write("{\"name\":\"Max\"}");
+        contextRunner().withBean("prototypeRefBean", RefBean.class, RefBean::new,
+                definition -> definition.setScope(BeanDefinition.SCOPE_PROTOTYPE)).run((context) -> {
+                    for (int i = 0; i < 10; i++) {
+                        context.getBean("prototypeRefBean", RefBean.class);
+                    }
+                    UnmarshalResourceWatcher watcher = (UnmarshalResourceWatcher) ReflectionTestUtils
+                            .getField(context.getBean(UnmarshalAnnotationPostProcessor.class), "watcher");
+                    assertThat(watcher.size()).isEqualTo(11);
+
+                    // the file never changes, so only a later watch can drop those of collected beans
+                    await().atMost(Duration.ofSeconds(10)).until(() -> {
+                        System.gc();
+                        context.getBean("prototypeRefBean", RefBean.class);
+                        return watcher.size() == 2;
+                    });
+                });
+    }
+
+    @Test
+    void refHoldsTheInitialValue() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(UnmarshalAnnotationAutoConfiguration.class))
+                .withBean("classpathRefBean", ClasspathRefBean.class).run((context) -> {
+                    UnmarshalRef<User> ref = context.getBean(ClasspathRefBean.class).user;
+                    assertThat(ref.get().getName()).isEqualTo("Max");
+                });
+    }
+
+}
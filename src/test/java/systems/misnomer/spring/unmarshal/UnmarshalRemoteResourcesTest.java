@@ -0,0 +1,187 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * tests fetching remote resources through {@link UnmarshalRemoteResources} against an embedded
+ * HTTP server.
+ */
+class UnmarshalRemoteResourcesTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private final AtomicInteger revalidations = new AtomicInteger();
+
+    /** counted down by every request to <code>/concurrent</code>, which waits for the others. */
+    private final CountDownLatch concurrent = new CountDownLatch(2);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/users.json", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                revalidations.incrementAndGet();
+                respond(exchange, 304, null);
+            } else {
+                downloads.incrementAndGet();
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                respond(exchange, 200, "[{\"name\":\"Max\"},{\"name\":\"Annie\"}]");
+            }
+        });
+        server.createContext("/slow.json", exchange -> {
+            sleep(2000);
+            respond(exchange, 200, "{}");
+        });
+        server.createContext("/concurrent", exchange -> {
+            concurrent.countDown();
+            try {
+                respond(exchange, concurrent.await(5, TimeUnit.SECONDS) ? 200 : 503, "{\"name\":\"Max\"}");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.createContext("/", exchange -> respond(exchange, 404, null));
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body != null) ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        exchange.sendResponseHeaders(status, (status == 304 || bytes.length == 0) ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private UnmarshalRemoteResources remoteResources() {
+        return new UnmarshalRemoteResources(directory, Duration.ofSeconds(1), Duration.ofMillis(500));
+    }
+
+    private static String read(Resource resource) throws IOException {
+        return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void cachedCopiesAreRevalidated() throws IOException {
+        Resource first = remoteResources().fetch(baseUrl + "/users.json");
+        Resource second = remoteResources().fetch(baseUrl + "/users.json");
+        assertThat(read(second)).isEqualTo(read(first)).contains("Annie");
+        assertThat(first.getFilename()).endsWith("-users.json");
+        assertThat(downloads).hasValue(1);
+        assertThat(revalidations).hasValue(1);
+    }
+
+    @Test
+    void resourcesAreFetchedOnceDuringStartup() throws IOException {
+        UnmarshalRemoteResources remoteResources = remoteResources();
+        Resource first = remoteResources.fetch(baseUrl + "/users.json");
+        assertThat(remoteResources.fetch(baseUrl + "/users.json")).isSameAs(first);
+        assertThat(downloads).hasValue(1);
+        assertThat(revalidations).hasValue(0);
+        remoteResources.clear();
+        assertThat(read(remoteResources.fetch(baseUrl + "/users.json"))).contains("Annie");
+        remoteResources.fetch(baseUrl + "/users.json");
+        assertThat(revalidations).hasValue(2);
+    }
+
+    @Test
+    void cachedCopiesAreUsedWhenTheOriginIsDown() throws IOException {
+        remoteResources().fetch(baseUrl + "/users.json");
+        server.stop(0);
+        server = null;
+        assertThat(read(remoteResources().fetch(baseUrl + "/users.json"))).contains("Annie");
+        assertThatThrownBy(() -> remoteResources().fetch(baseUrl + "/other.json"))
+                .isInstanceOf(UnmarshalException.class);
+    }
+
+    @Test
+    void missingResourcesDontExist() {
+        assertThat(remoteResources().fetch(baseUrl + "/missing.json").exists()).isFalse();
+    }
+
+    @Test
+    void slowResponsesTimeOut() {
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> remoteResources().fetch(baseUrl + "/slow.json"))
+                .isInstanceOf(UnmarshalException.class).hasMessageContaining("timed out");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+    }
+
+    private class RemoteFields {
+        @Unmarshal("${remote.url}/concurrent/first.json")
+        User first;
+
+        @Unmarshal("${remote.url}/concurrent/second.json")
+        User second;
+
+        @Unmarshal("${remote.url}/users.json")
+        List<User> users;
+    }
+
+    @Test
+    void remoteFieldsOfABeanAreFetchedConcurrently() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", Map.of("remote.url", baseUrl)));
+        UnmarshalProperties properties = new UnmarshalProperties();
+        properties.getRemote().setCacheDirectory(directory);
+        UnmarshalAnnotationPostProcessor postProcessor =
+                new UnmarshalAnnotationPostProcessor(environment, new DefaultResourceLoader(), new ObjectMapper());
+        postProcessor.setProperties(properties);
+        RemoteFields bean = new RemoteFields();
+        postProcessor.postProcessBeforeInitialization(bean, "remoteFields");
+        assertThat(bean.first.getName()).isEqualTo("Max");
+        assertThat(bean.second.getName()).isEqualTo("Max");
+        assertThat(bean.users).extracting(User::getName).containsExactly("Max", "Annie");
+    }
+
+}
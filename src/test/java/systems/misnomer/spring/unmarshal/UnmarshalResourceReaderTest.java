@@ -0,0 +1,180 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.io.InputDecorator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * tests the read strategies chosen by {@link UnmarshalResourceReader}.
+ */
+class UnmarshalResourceReaderTest {
+
+    private final ObjectReader userReader = new ObjectMapper().readerFor(User.class);
+
+    @TempDir
+    Path tempDir;
+
+    /** the inputs Jackson was handed by {@link #inputRecordingReader()}. */
+    private final List<Object> inputs = new ArrayList<>();
+
+    private Resource file(String content) throws IOException {
+        return new FileSystemResource(Files.writeString(tempDir.resolve("user.json"), content));
+    }
+
+    /**
+     * @return a user reader that records whether Jackson parses an array or a stream
+     */
+    private ObjectReader inputRecordingReader() {
+        JsonFactory factory = JsonFactory.builder().inputDecorator(new InputDecorator() {
+
+            @Override
+            public InputStream decorate(IOContext context, InputStream in) {
+                inputs.add(in);
+                return in;
+            }
+
+            @Override
+            public InputStream decorate(IOContext context, byte[] src, int offset, int length) {
+                inputs.add(src);
+                return null;
+            }
+
+            @Override
+            public Reader decorate(IOContext context, Reader reader) {
+                inputs.add(reader);
+                return reader;
+            }
+
+        }).build();
+        return new ObjectMapper(factory).readerFor(User.class);
+    }
+
+    @Test
+    void smallFilesAreReadIntoAnArray() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(Long.MAX_VALUE);
+        User user = (User) reader.read(inputRecordingReader(), file("{\"name\":\"Max\"}"), StandardCharsets.UTF_8);
+        assertThat(user.getName()).isEqualTo("Max");
+        assertThat(inputs).singleElement().isInstanceOf(byte[].class);
+    }
+
+    @Test
+    void filesAtTheThresholdAreMapped() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        User user = (User) reader.read(inputRecordingReader(), file("{\"name\":\"Annie\"}"), StandardCharsets.UTF_8);
+        assertThat(user.getName()).isEqualTo("Annie");
+        assertThat(inputs).singleElement().isInstanceOf(ByteBufferBackedInputStream.class);
+    }
+
+    @Test
+    void nonFileResourcesAreStreamed() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        Resource resource = new ByteArrayResource("{\"name\":\"Sam\"}".getBytes(StandardCharsets.UTF_8));
+        User user = (User) reader.read(userReader, resource, StandardCharsets.UTF_8);
+        assertThat(user.getName()).isEqualTo("Sam");
+    }
+
+    @Test
+    void legacyCharsetsAreDecodedThroughAReader() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        Resource resource = new FileSystemResource(
+                Files.write(tempDir.resolve("latin1.json"), "{\"name\":\"Café\"}".getBytes(StandardCharsets.ISO_8859_1)));
+        User user = (User) reader.read(userReader, resource, StandardCharsets.ISO_8859_1);
+        assertThat(user.getName()).isEqualTo("Café");
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void compressedFilesAreRecognizedByExtension() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        Resource resource =
+                new FileSystemResource(Files.write(tempDir.resolve("user.json.gz"), gzip("{\"name\":\"Max\"}")));
+        assertThat(((User) reader.read(userReader, resource, StandardCharsets.UTF_8)).getName()).isEqualTo("Max");
+    }
+
+    @Test
+    void compressedResourcesAreRecognizedByMagicBytes() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        Resource file = new FileSystemResource(Files.write(tempDir.resolve("user"), gzip("{\"name\":\"Max\"}")));
+        assertThat(((User) reader.read(userReader, file, StandardCharsets.UTF_8)).getName()).isEqualTo("Max");
+        Resource stream = new ByteArrayResource(gzip("{\"name\":\"Sam\"}"));
+        assertThat(((User) reader.read(userReader, stream, StandardCharsets.UTF_8)).getName()).isEqualTo("Sam");
+        Resource latin1 = new ByteArrayResource(gzip("{\"name\":\"Annie\"}"));
+        assertThat(((User) reader.read(userReader, latin1, StandardCharsets.ISO_8859_1)).getName()).isEqualTo("Annie");
+    }
+
+    private static byte[] xz(String content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XZOutputStream xz = new XZOutputStream(out, new LZMA2Options())) {
+            xz.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void xzResourcesAreDecompressedWhenTheLibraryIsPresent() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        Resource file = new FileSystemResource(Files.write(tempDir.resolve("user.json.xz"), xz("{\"name\":\"Max\"}")));
+        assertThat(((User) reader.read(userReader, file, StandardCharsets.UTF_8)).getName()).isEqualTo("Max");
+        Resource stream = new ByteArrayResource(xz("{\"name\":\"Sam\"}"));
+        assertThat(((User) reader.read(userReader, stream, StandardCharsets.UTF_8)).getName()).isEqualTo("Sam");
+    }
+
+    @Test
+    void corruptXzResourcesAreReported() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        byte[] content = xz("{\"name\":\"Max\"}");
+        content[content.length / 2] ^= (byte) 0xff;
+        Resource resource = new FileSystemResource(Files.write(tempDir.resolve("user.json.xz"), content));
+        assertThatIOException().isThrownBy(() -> reader.read(userReader, resource, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void streamedLinesHoldingArraysAreNotUnwrapped() throws IOException {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        ObjectReader lineReader = new ObjectMapper().readerFor(int[].class);
+        Resource resource = new ByteArrayResource(gzip("[1,2]\n[3,4]\n"));
+        assertThat(reader.readLines(lineReader, resource, StandardCharsets.UTF_8))
+                .containsExactly(new int[] {1, 2}, new int[] {3, 4});
+    }
+
+    /**
+     * zstd-jni isn't on the test classpath.
+     */
+    @Test
+    void missingCodecIsReported() {
+        UnmarshalResourceReader reader = new UnmarshalResourceReader(0);
+        Resource resource = new ByteArrayResource(new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0, 0});
+        assertThatIOException().isThrownBy(() -> reader.read(userReader, resource, StandardCharsets.UTF_8))
+                .withMessageContaining("com.github.luben.zstd.ZstdInputStream");
+    }
+
+}
@@ -0,0 +1,180 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ReflectionUtils;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * tests reading through, invalidating and recovering the {@link UnmarshalSnapshotCache}.
+ */
+class UnmarshalSnapshotCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+
+    @TempDir
+    Path snapshots;
+
+    static class Target {
+
+        @Unmarshal("classpath:/testUser.json")
+        User user;
+
+        @Unmarshal("classpath:/prices.json")
+        Map<String, BigDecimal> prices;
+
+        @Unmarshal("classpath:/prices.json")
+        Map<String, Object> values;
+
+        @Unmarshal("classpath:/prices.json")
+        JsonNode tree;
+
+    }
+
+    private UnmarshalElement element(String fieldName) {
+        return element(fieldName, objectMapper);
+    }
+
+    private UnmarshalElement element(String fieldName, ObjectMapper objectMapper) {
+        Field field = ReflectionUtils.findField(Target.class, fieldName);
+        JavaType javaType = objectMapper.getTypeFactory().constructType(field.getGenericType());
+        return new UnmarshalElement(field, field.getAnnotation(Unmarshal.class), UnmarshalElement.Kind.VALUE,
+                "classpath:/testUser.json", StandardCharsets.UTF_8, UnmarshalFormat.JSON, javaType, null,
+                objectMapper.readerFor(javaType), null, null);
+    }
+
+    private static Resource json(String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Path> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(snapshots)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void laterReadsComeFromTheSnapshot() throws IOException {
+        UnmarshalSnapshotCache cache = new UnmarshalSnapshotCache(snapshots, objectMapper, smileMapper);
+        Resource resource = json("{\"name\":\"Max\"}");
+        assertThat(((User) cache.read(element("user"), resource)).getName()).isEqualTo("Max");
+        Path snapshot = snapshotFiles().get(0);
+
+        // replace the snapshot with a different document to prove it is what's read
+        Files.write(snapshot, smileMapper.writeValueAsBytes(Map.of("name", "Snapshot")));
+        assertThat(((User) cache.read(element("user"), resource)).getName()).isEqualTo("Snapshot");
+    }
+
+    @Test
+    void changedContentMissesTheSnapshot() throws IOException {
+        UnmarshalSnapshotCache cache = new UnmarshalSnapshotCache(snapshots, objectMapper, smileMapper);
+        cache.read(element("user"), json("{\"name\":\"Max\"}"));
+        User user = (User) cache.read(element("user"), json("{\"name\":\"Annie\"}"));
+        assertThat(user.getName()).isEqualTo("Annie");
+        assertThat(snapshotFiles()).hasSize(2);
+    }
+
+    @Test
+    void unchangedFilesAreNotReadAgain(@TempDir Path fixtures) throws IOException {
+        UnmarshalSnapshotCache cache = new UnmarshalSnapshotCache(snapshots, objectMapper, smileMapper);
+        Path file = Files.writeString(fixtures.resolve("user.json"), "{\"name\":\"Max\"}");
+        FileTime lastModified = Files.getLastModifiedTime(file);
+        cache.read(element("user"), new FileSystemResource(file));
+
+        // same length and time: the snapshot is trusted without reading the file
+        Files.writeString(file, "{\"name\":\"Sam\"}");
+        Files.setLastModifiedTime(file, lastModified);
+        assertThat(((User) cache.read(element("user"), new FileSystemResource(file))).getName()).isEqualTo("Max");
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified.toMillis() + 2000));
+        assertThat(((User) cache.read(element("user"), new FileSystemResource(file))).getName()).isEqualTo("Sam");
+    }
+
+    @Test
+    void changedFilesReplaceTheirSnapshot(@TempDir Path fixtures) throws IOException {
+        UnmarshalSnapshotCache cache = new UnmarshalSnapshotCache(snapshots, objectMapper, smileMapper);
+        Path file = Files.writeString(fixtures.resolve("user.json"), "{\"name\":\"Max\"}");
+        cache.read(element("user"), new FileSystemResource(file));
+        Files.writeString(file, "{\"name\":\"Annie\"}");
+        assertThat(((User) cache.read(element("user"), new FileSystemResource(file))).getName()).isEqualTo("Annie");
+        assertThat(snapshotFiles()).extracting(path -> path.getFileName().toString())
+                .hasSize(2).anyMatch(name -> name.endsWith(".sml")).anyMatch(name -> name.endsWith(".properties"));
+    }
+
+    @Test
+    void unusableSnapshotFallsBackToJsonAndIsRewritten() throws IOException {
+        UnmarshalSnapshotCache cache = new UnmarshalSnapshotCache(snapshots, objectMapper, smileMapper);
+        Resource resource = json("{\"name\":\"Max\"}");
+        cache.read(element("user"), resource);
+        Path snapshot = snapshotFiles().get(0);
+        Files.write(snapshot, new byte[] {1, 2, 3});
+
+        assertThat(((User) cache.read(element("user"), resource)).getName()).isEqualTo("Max");
+        assertThat(smileMapper.readValue(snapshot.toFile(), User.class).getName()).isEqualTo("Max");
+    }
+
+    @Test
+    void numbersKeepTheirExactValue() throws IOException {
+        UnmarshalSnapshotCache cache = new UnmarshalSnapshotCache(snapshots, objectMapper, smileMapper);
+        Resource resource = json("{\"price\":0.100000000000000000001}");
+        cache.read(element("prices"), resource);
+        @SuppressWarnings("unchecked")
+        Map<String, BigDecimal> prices = (Map<String, BigDecimal>) cache.read(element("prices"), resource);
+        assertThat(prices.get("price")).isEqualByComparingTo("0.100000000000000000001");
+    }
+
+    @Test
+    void untypedNumbersBindTheSameTypesFromTheSnapshot() throws IOException {
+        UnmarshalSnapshotCache cache = new UnmarshalSnapshotCache(snapshots, objectMapper, smileMapper);
+        Resource resource = json("{\"p\":1.5,\"q\":0.100000000000000000001,\"n\":7}");
+        Object fromJson = cache.read(element("values"), resource);
+        Object fromSnapshot = cache.read(element("values"), resource);
+        assertThat(fromSnapshot).isEqualTo(fromJson).isEqualTo(Map.of("p", 1.5, "q", 0.1, "n", 7));
+
+        JsonNode treeFromJson = (JsonNode) cache.read(element("tree"), resource);
+        JsonNode treeFromSnapshot = (JsonNode) cache.read(element("tree"), resource);
+        assertThat(treeFromSnapshot).isEqualTo(treeFromJson);
+        assertThat(treeFromSnapshot.get("p")).isInstanceOf(DoubleNode.class);
+    }
+
+    @Test
+    void untypedNumbersStayExactWhenTheReaderAsksForIt() throws IOException {
+        ObjectMapper decimalMapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        UnmarshalSnapshotCache cache =
+                new UnmarshalSnapshotCache(snapshots, decimalMapper, decimalMapper.copyWith(new SmileFactory()));
+        Resource resource = json("{\"p\":0.100000000000000000001}");
+        Object fromJson = cache.read(element("values", decimalMapper), resource);
+        Object fromSnapshot = cache.read(element("values", decimalMapper), resource);
+        assertThat(fromSnapshot).isEqualTo(fromJson)
+                .isEqualTo(Map.of("p", new BigDecimal("0.100000000000000000001")));
+    }
+
+    @Test
+    void failureToWriteIsNotFatal() throws IOException {
+        Path notADirectory = Files.createFile(snapshots.resolve("file"));
+        UnmarshalSnapshotCache cache = new UnmarshalSnapshotCache(notADirectory, objectMapper, smileMapper);
+        assertThat(((User) cache.read(element("user"), json("{\"name\":\"Max\"}"))).getName()).isEqualTo("Max");
+    }
+
+}
@@ -0,0 +1,195 @@
+package systems.misnomer.spring.unmarshal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.unit.DataSize;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * tests evicting, recovering and counting entries of the {@link UnmarshalTokenCache}, and sharing
+ * it between post processors.
+ */
+class UnmarshalTokenCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @TempDir
+    Path directory;
+
+    private UnmarshalTokenCache.Key key(String name) {
+        return new UnmarshalTokenCache.Key("file:/" + name, 0, 14, StandardCharsets.UTF_8, UnmarshalFormat.JSON,
+                null, UnmarshalTokenCache.Features.of(objectMapper.reader()));
+    }
+
+    private TokenBuffer load() throws IOException {
+        loads.incrementAndGet();
+        return objectMapper.readValue("{\"name\":\"Max\"}", TokenBuffer.class);
+    }
+
+    private TokenBuffer tokens(UnmarshalTokenCache cache, UnmarshalTokenCache.Key key) throws IOException {
+        return cache.get(key, this::load);
+    }
+
+    /** the estimated size of every entry these tests cache. */
+    private long entrySize() throws IOException {
+        long size = UnmarshalTokenCache.sizeOf(load());
+        loads.set(0);
+        return size;
+    }
+
+    @Test
+    void entriesAreLoadedOnce() throws IOException {
+        long entrySize = entrySize();
+        UnmarshalTokenCache cache = new UnmarshalTokenCache(10 * entrySize);
+        TokenBuffer first = tokens(cache, key("a.json"));
+        assertThat(tokens(cache, key("a.json"))).isSameAs(first);
+        assertThat(first.getCodec()).isNull();
+        assertThat(objectMapper.readValue(first.asParser(), User.class).getName()).isEqualTo("Max");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getStatistics()).isEqualTo(new UnmarshalTokenCache.Statistics(1, 0, 1, 0, 1, entrySize));
+    }
+
+    @Test
+    void sizesAreEstimatedFromTheTokens() throws IOException {
+        TokenBuffer small = objectMapper.readValue("{\"name\":\"Max\"}", TokenBuffer.class);
+        TokenBuffer large = objectMapper.readValue("{\"name\":\"" + "x".repeat(1000) + "\"}", TokenBuffer.class);
+        assertThat(UnmarshalTokenCache.sizeOf(small)).isPositive();
+        assertThat(UnmarshalTokenCache.sizeOf(large)).isGreaterThan(UnmarshalTokenCache.sizeOf(small) + 990);
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreHeldSoftly() throws IOException {
+        long entrySize = entrySize();
+        UnmarshalTokenCache cache = new UnmarshalTokenCache(2 * entrySize + entrySize / 2);
+        TokenBuffer a = tokens(cache, key("a.json"));
+        tokens(cache, key("b.json"));
+        tokens(cache, key("a.json"));
+        tokens(cache, key("c.json"));
+        // b was used least recently, so it was demoted; a is still held strongly
+        assertThat(cache.getStatistics())
+                .isEqualTo(new UnmarshalTokenCache.Statistics(1, 0, 3, 1, 2, 2 * entrySize));
+        tokens(cache, key("b.json"));
+        assertThat(loads).hasValue(3);
+        assertThat(cache.getStatistics().softHits()).isEqualTo(1);
+        assertThat(tokens(cache, key("a.json"))).isSameAs(a);
+    }
+
+    @Test
+    void shrinkingEvictsAndClearingEmpties() throws IOException {
+        long entrySize = entrySize();
+        UnmarshalTokenCache cache = new UnmarshalTokenCache(10 * entrySize);
+        tokens(cache, key("a.json"));
+        tokens(cache, key("b.json"));
+        cache.setMaxSize(entrySize);
+        assertThat(cache.getStatistics().entries()).isEqualTo(1);
+        cache.clear();
+        tokens(cache, key("b.json"));
+        assertThat(loads).hasValue(3);
+        assertThat(cache.getStatistics().size()).isEqualTo(entrySize);
+    }
+
+    @Test
+    void requiredSizesOnlyGrow() throws IOException {
+        long entrySize = entrySize();
+        UnmarshalTokenCache cache = new UnmarshalTokenCache(0);
+        cache.requireMaxSize(2 * entrySize);
+        tokens(cache, key("a.json"));
+        tokens(cache, key("b.json"));
+        cache.requireMaxSize(entrySize);
+        assertThat(cache.getStatistics().entries()).isEqualTo(2);
+    }
+
+    @Test
+    void changedResourcesHaveNewKeys() throws IOException {
+        Path file = Files.writeString(directory.resolve("users.json"), "[]");
+        FileSystemResource resource = new FileSystemResource(file);
+        ObjectReader reader = objectMapper.reader();
+        UnmarshalTokenCache.Key before = UnmarshalTokenCache.Key.of(resource, reader, StandardCharsets.UTF_8,
+                UnmarshalFormat.JSON, null);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertThat(UnmarshalTokenCache.Key.of(resource, reader, StandardCharsets.UTF_8, UnmarshalFormat.JSON, null))
+                .isNotEqualTo(before);
+        assertThat(UnmarshalTokenCache.Key.of(new FileSystemResource(directory.resolve("missing.json")), reader,
+                StandardCharsets.UTF_8, UnmarshalFormat.JSON, null)).isNull();
+    }
+
+    @Test
+    void differentlyConfiguredReadersHaveNewKeys() throws IOException {
+        FileSystemResource resource = new FileSystemResource(Files.writeString(directory.resolve("users.json"), "[]"));
+        ObjectMapper strict = JsonMapper.builder(JsonFactory.builder().streamReadConstraints(
+                StreamReadConstraints.builder().maxNestingDepth(10).build()).build()).build();
+        ObjectMapper lenient = JsonMapper.builder().enable(JsonReadFeature.ALLOW_JAVA_COMMENTS).build();
+        UnmarshalTokenCache.Key key = UnmarshalTokenCache.Key.of(resource, objectMapper.reader(),
+                StandardCharsets.UTF_8, UnmarshalFormat.JSON, null);
+        assertThat(UnmarshalTokenCache.Key.of(resource, new ObjectMapper().reader(), StandardCharsets.UTF_8,
+                UnmarshalFormat.JSON, null)).isEqualTo(key);
+        assertThat(UnmarshalTokenCache.Key.of(resource, strict.reader(), StandardCharsets.UTF_8,
+                UnmarshalFormat.JSON, null)).isNotEqualTo(key);
+        assertThat(UnmarshalTokenCache.Key.of(resource, lenient.reader(), StandardCharsets.UTF_8,
+                UnmarshalFormat.JSON, null)).isNotEqualTo(key);
+        assertThat(UnmarshalTokenCache.Key.of(resource,
+                objectMapper.reader(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS), StandardCharsets.UTF_8,
+                UnmarshalFormat.JSON, null)).isNotEqualTo(key);
+    }
+
+    private class Fixtures {
+        @Unmarshal("${fixtures}/users.json")
+        List<User> users;
+
+        @Unmarshal(location = "${fixtures}/users.json", pointer = "/0")
+        User first;
+    }
+
+    private Fixtures inject() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test",
+                Map.of("fixtures", directory.toUri().toString())));
+        UnmarshalProperties properties = new UnmarshalProperties();
+        properties.getTokenCache().setEnabled(true);
+        properties.getTokenCache().setMaxSize(DataSize.ofMegabytes(1));
+        UnmarshalAnnotationPostProcessor postProcessor =
+                new UnmarshalAnnotationPostProcessor(environment, new DefaultResourceLoader(), objectMapper);
+        postProcessor.setProperties(properties);
+        Fixtures bean = new Fixtures();
+        postProcessor.postProcessBeforeInitialization(bean, "fixtures");
+        return bean;
+    }
+
+    @Test
+    void postProcessorsShareTheCacheButNotValues() throws IOException {
+        Files.writeString(directory.resolve("users.json"), "[{\"name\":\"Max\"},{\"name\":\"Annie\"}]");
+        UnmarshalTokenCache.Statistics before = UnmarshalTokenCache.shared().getStatistics();
+        Fixtures first = inject();
+        Fixtures second = inject();
+        UnmarshalTokenCache.Statistics after = UnmarshalTokenCache.shared().getStatistics();
+        assertThat(second.users).extracting(User::getName).containsExactly("Max", "Annie");
+        assertThat(second.first.getName()).isEqualTo("Max");
+        assertThat(second.users).isNotSameAs(first.users);
+        assertThat(second.first).isNotSameAs(first.first);
+        assertThat(after.misses() - before.misses()).isEqualTo(2);
+        assertThat(after.hits() - before.hits()).isEqualTo(2);
+    }
+
+}